@@ -0,0 +1,100 @@
+package com.example.echobackend.benchmark;
+
+import com.example.echobackend.EchoBackendApplication;
+import com.example.echobackend.config.IdBlockAligner;
+import com.example.echobackend.dto.ImportPostRequest;
+import com.example.echobackend.dto.ImportRelationshipRequest;
+import com.example.echobackend.service.BulkImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// BulkImportService write throughput in rows per second, through the real Hibernate stack against
+// the database of the test configuration (in-memory H2 in MySQL mode; export SPRING_DATASOURCE_URL
+// and friends, which the forked JVM inherits, to measure a MySQL server).
+// Each invocation imports ROWS new rows in one transaction; a post row also writes its post_stats
+// row. batchSize is db.batch-size, so 1 is the statement-per-row baseline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BulkImportBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int USERS = 10_000;
+
+    @Param({"1", "50", "500"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private BulkImportService bulkImportService;
+    private long nextPost;
+    private long nextEdge;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(EchoBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("db.batch-size=" + batchSize, "logging.level.root=WARN")
+                .run();
+        bulkImportService = context.getBean(BulkImportService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "user" + id, "user" + id + "@example.com", "x", "User " + id});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, password, name) VALUES (?, ?, ?, ?, ?)", users);
+        context.getBean(IdBlockAligner.class).alignAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int importPosts() {
+        List<ImportPostRequest> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            long n = nextPost++;
+            rows.add(new ImportPostRequest(1 + n % USERS, "Imported post " + n, null, null));
+        }
+        return bulkImportService.importPosts(rows);
+    }
+
+    // Every edge is new: edge n links user f to the user (n / USERS + 1) places after it
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int importRelationships() {
+        List<ImportRelationshipRequest> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            long n = nextEdge++;
+            long follower = n % USERS;
+            long followed = (follower + n / USERS + 1) % USERS;
+            rows.add(new ImportRelationshipRequest(follower + 1, followed + 1));
+        }
+        return bulkImportService.importRelationships(rows);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.echobackend.benchmark;
+
+import com.example.echobackend.security.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Per-request token checks done by JwtAuthenticationFilter.
+//   legacyFilterPath: the old flow, a new signing key and a full parse for each of
+//                     extractUsername, isTokenValid's extractUsername and extractExpiration
+//   singleParse:      one verified parse with the prebuilt key and the cache disabled
+//   cachedFilterPath: the current flow for a session's repeat requests (cache hit)
+//   generateToken:    signing a new token at login
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private String secret;
+    private String token;
+    private UserDetails user;
+    private JwtService cachedService;
+    private JwtService uncachedService;
+
+    @Setup
+    public void setup() {
+        byte[] keyBytes = new byte[32];
+        ThreadLocalRandom.current().nextBytes(keyBytes);
+        secret = Base64.getEncoder().encodeToString(keyBytes);
+
+        cachedService = new JwtService(secret, TimeUnit.HOURS.toMillis(1), 10_000);
+        uncachedService = new JwtService(secret, TimeUnit.HOURS.toMillis(1), 0);
+        token = cachedService.generateToken(42L, "alice");
+        user = User.withUsername("alice").password("unused").roles("USER").build();
+    }
+
+    @Benchmark
+    public boolean legacyFilterPath() {
+        String username = legacyParse(token).getSubject();
+        return username.equals(user.getUsername())
+                && legacyParse(token).getSubject().equals(user.getUsername())
+                && !legacyParse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        JwtService.VerifiedToken verified = uncachedService.verify(token);
+        return uncachedService.isTokenValid(verified, user);
+    }
+
+    @Benchmark
+    public boolean cachedFilterPath() {
+        JwtService.VerifiedToken verified = cachedService.verify(token);
+        return cachedService.isTokenValid(verified, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachedService.generateToken(42L, "alice");
+    }
+
+    private Claims legacyParse(String jwt) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+    }
+}
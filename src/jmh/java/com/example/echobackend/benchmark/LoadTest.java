@@ -0,0 +1,141 @@
+package com.example.echobackend.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Closed-loop HTTP load against a running server, for comparing request execution modes: start
+// the app once as usual and once with spring.threads.virtual.enabled=true and run the same load
+// against both, e.g.
+//   mvn -P benchmark test-compile exec:exec@load-test -Dload.urls=http://localhost:8080/api/posts \
+//       -Dload.token=<jwt> -Dload.concurrency=400 -Dload.duration=60s
+// Each of load.concurrency clients sends a GET to a random one of load.urls as soon as its last
+// response arrived. Requests during load.warmup are not counted.
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        List<URI> urls = Arrays.stream(System.getProperty("load.urls", "http://localhost:8080/api/posts").split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(URI::create)
+                .toList();
+        String token = System.getProperty("load.token", "");
+        int concurrency = Integer.getInteger("load.concurrency", 200);
+        Duration warmup = parse(System.getProperty("load.warmup", "10s"));
+        Duration duration = parse(System.getProperty("load.duration", "30s"));
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        List<Future<Result>> running = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            running.add(clients.submit(() -> run(http, urls, token, measureFrom, end)));
+        }
+
+        Result total = new Result();
+        for (Future<Result> client : running) {
+            total.addAll(client.get());
+        }
+        clients.shutdownNow();
+        clients.awaitTermination(5, TimeUnit.SECONDS);
+        total.print(concurrency, duration);
+    }
+
+    private static Result run(HttpClient http, List<URI> urls, String token, long measureFrom, long end) {
+        Result result = new Result();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(urls.get(ThreadLocalRandom.current().nextInt(urls.size())))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET();
+            if (!token.isEmpty()) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            boolean ok;
+            try {
+                HttpResponse<Void> response = http.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() < 400;
+            } catch (Exception e) {
+                ok = false;
+            }
+            long latency = System.nanoTime() - now;
+            if (now >= measureFrom) {
+                result.record(latency, ok);
+            }
+        }
+        return result;
+    }
+
+    private static Duration parse(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+
+    private static final class Result {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long latencyNanos, boolean ok) {
+            if (!ok) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        void addAll(Result other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        void print(int concurrency, Duration duration) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("clients=%d requests=%d errors=%d throughput=%.1f req/s%n",
+                    concurrency, count, errors, count / (duration.toMillis() / 1000.0));
+            System.out.printf("latency ms: p50=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.echobackend.benchmark;
+
+import com.example.echobackend.dto.UserDTO;
+import com.example.echobackend.model.User;
+import com.example.echobackend.repository.RelationshipRepository;
+import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.service.FollowGraph;
+import com.example.echobackend.service.HomeTimelineStore;
+import com.example.echobackend.service.RelationshipService;
+import com.example.echobackend.service.StatsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// RelationshipService.getMutualFriendsList over a power-law follow graph of `users` accounts
+// (SyntheticData.powerLawFollows, ~10 follows each). Each call picks a random user, so most hit
+// small adjacency lists and a few hit celebrity-sized ones, as in production.
+//   sortedArrayIntersect: the merge of the FollowGraph's sorted long[] lists
+//   hashSetIntersect:     the database fallback's boxed HashSet retainAll on the same ids
+//   getMutualFriendsList: the whole call including the UserDTO mapping (users stubbed)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MutualFriendsBenchmark {
+
+    private static final int AVERAGE_FOLLOWS = 10;
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    private FollowGraph graph;
+    private RelationshipService relationshipService;
+
+    @Setup
+    public void setup() {
+        graph = SyntheticData.followGraph(SyntheticData.powerLawFollows(users, AVERAGE_FOLLOWS));
+        User[] data = SyntheticData.users(users);
+
+        UserRepository userRepository = mock(UserRepository.class, withSettings().stubOnly());
+        when(userRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<User> found = new ArrayList<>();
+            for (Object id : invocation.<Iterable<?>>getArgument(0)) {
+                found.add(data[(int) ((Long) id - 1)]);
+            }
+            return found;
+        });
+        relationshipService = new RelationshipService(mock(RelationshipRepository.class), userRepository,
+                mock(HomeTimelineStore.class), graph, mock(StatsService.class));
+    }
+
+    @Benchmark
+    public long[] sortedArrayIntersect() {
+        long userId = randomUser();
+        return FollowGraph.intersect(graph.getFollowing(userId), graph.getFollowers(userId));
+    }
+
+    @Benchmark
+    public Set<Long> hashSetIntersect() {
+        long userId = randomUser();
+        Set<Long> following = new HashSet<>();
+        for (long id : graph.getFollowing(userId)) {
+            following.add(id);
+        }
+        Set<Long> followers = new HashSet<>();
+        for (long id : graph.getFollowers(userId)) {
+            followers.add(id);
+        }
+        following.retainAll(followers);
+        return following;
+    }
+
+    @Benchmark
+    public List<UserDTO> getMutualFriendsList() {
+        return relationshipService.getMutualFriendsList(randomUser());
+    }
+
+    private long randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
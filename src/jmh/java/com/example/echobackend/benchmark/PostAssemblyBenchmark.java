@@ -0,0 +1,142 @@
+package com.example.echobackend.benchmark;
+
+import com.example.echobackend.dto.CursorPage;
+import com.example.echobackend.dto.PostResponse;
+import com.example.echobackend.model.Post;
+import com.example.echobackend.model.PostStats;
+import com.example.echobackend.model.User;
+import com.example.echobackend.repository.LikeRepository;
+import com.example.echobackend.repository.MediaObjectRepository;
+import com.example.echobackend.repository.PostRepository;
+import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
+import com.example.echobackend.service.HomeTimelineStore;
+import com.example.echobackend.service.LikeIngestionService;
+import com.example.echobackend.service.MediaService;
+import com.example.echobackend.service.MediaUrlResolver;
+import com.example.echobackend.service.PostService;
+import com.example.echobackend.service.RelationshipService;
+import com.example.echobackend.service.S3Service;
+import com.example.echobackend.service.StatsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.MockSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// PostService.getPosts response assembly: one page of posts hydrated with counters, the caller's
+// likes, author rows and media URLs, then mapped to PostResponse. The repositories are stubs over
+// the synthetic data set that hand back a random window of `posts` posts by random authors, so the
+// page mixes authors like a home feed does. Building the stubbed result lists is part of the
+// measured time, roughly what a driver spends materializing the same rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PostAssemblyBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int posts;
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private PostService postService;
+
+    @Setup
+    public void setup() {
+        User[] users = SyntheticData.users(Math.max(posts / 10, 100));
+        Post[] data = SyntheticData.posts(posts, users);
+        PostStats[] stats = SyntheticData.postStats(posts);
+        MockSettings stubOnly = withSettings().stubOnly();
+
+        PostRepository postRepository = mock(PostRepository.class, stubOnly);
+        when(postRepository.findPageByUserId(anyLong(), any())).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(1);
+            int size = Math.min(pageable.getPageSize(), data.length);
+            int from = ThreadLocalRandom.current().nextInt(data.length - size + 1);
+            return new SliceImpl<>(Arrays.asList(data).subList(from, from + size), pageable, true);
+        });
+
+        StatsService statsService = mock(StatsService.class, stubOnly);
+        when(statsService.getPostStats(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            Map<Long, PostStats> result = new HashMap<>();
+            for (Long id : ids) {
+                result.put(id, stats[(int) (id - 1)]);
+            }
+            return result;
+        });
+
+        // The caller has liked every third post
+        LikeRepository likeRepository = mock(LikeRepository.class, stubOnly);
+        when(likeRepository.findLikedPostIds(anyLong(), anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(1);
+            List<Long> liked = new ArrayList<>();
+            for (Long id : ids) {
+                if (id % 3 == 0) {
+                    liked.add(id);
+                }
+            }
+            return liked;
+        });
+
+        UserRepository userRepository = mock(UserRepository.class, stubOnly);
+        when(userRepository.findAuthorsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                User user = users[(int) (id - 1)];
+                rows.add(new Object[]{user.getId(), user.getName(), user.getProfilePic()});
+            }
+            return rows;
+        });
+
+        CurrentUserResolver currentUserResolver = mock(CurrentUserResolver.class, stubOnly);
+        when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
+
+        // No managed media: every location resolves to itself, after a cache miss on first sight
+        MediaObjectRepository mediaObjectRepository = mock(MediaObjectRepository.class, stubOnly);
+        when(mediaObjectRepository.findByLocationIn(anyCollection())).thenReturn(List.of());
+        MediaUrlResolver mediaUrlResolver = new MediaUrlResolver(mediaObjectRepository, mock(S3Service.class, stubOnly),
+                new SimpleMeterRegistry(), 100_000);
+
+        postService = new PostService(postRepository, userRepository, currentUserResolver,
+                mock(RelationshipService.class, stubOnly), mock(HomeTimelineStore.class, stubOnly), statsService,
+                likeRepository, mock(LikeIngestionService.class, stubOnly), mock(MediaService.class, stubOnly),
+                mediaUrlResolver);
+    }
+
+    @Benchmark
+    public CursorPage<PostResponse> getPosts() {
+        return postService.getPosts(2L, null, pageSize);
+    }
+}
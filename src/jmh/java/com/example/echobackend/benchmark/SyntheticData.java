@@ -0,0 +1,149 @@
+package com.example.echobackend.benchmark;
+
+import com.example.echobackend.model.Post;
+import com.example.echobackend.model.PostStats;
+import com.example.echobackend.model.User;
+import com.example.echobackend.repository.RelationshipRepository;
+import com.example.echobackend.service.FollowGraph;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Deterministic data sets for the benchmarks. Ids are 1..n so an id doubles as an array index
+// (id - 1). Sizes are picked per benchmark with @Param, typically 1_000 / 100_000 / 1_000_000.
+final class SyntheticData {
+
+    static final long SEED = 42L;
+
+    private SyntheticData() {
+    }
+
+    static User[] users(int n) {
+        User[] users = new User[n];
+        for (int i = 0; i < n; i++) {
+            long id = i + 1L;
+            users[i] = new User(id, "user" + id, "user" + id + "@example.com", "{noop}unused",
+                    "User " + id, "/upload/cover" + id + ".jpg", "/upload/avatar" + id + ".jpg",
+                    "City " + (id % 500), "Site " + id, "https://example.com/" + id);
+        }
+        return users;
+    }
+
+    // Posts by random authors, newest first like a feed page; every other post has an image
+    static Post[] posts(int n, User[] authors) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Post[] posts = new Post[n];
+        for (int i = 0; i < n; i++) {
+            long id = n - i;
+            posts[i] = new Post(id, "Post " + id + " with a short description",
+                    id % 2 == 0 ? "/upload/post" + id + ".jpg" : null,
+                    start.plusSeconds(id), authors[random.nextInt(authors.length)]);
+        }
+        return posts;
+    }
+
+    // Indexed by post id - 1
+    static PostStats[] postStats(int n) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        PostStats[] stats = new PostStats[n];
+        for (int i = 0; i < n; i++) {
+            stats[i] = new PostStats(i + 1L, random.nextInt(1000), random.nextInt(100));
+        }
+        return stats;
+    }
+
+    // A power-law follow graph over users 1..n, as parallel arrays sorted by (follower, followed)
+    // the way RelationshipRepository.findEdgesAfter pages through it. Out-degrees are exponential
+    // around averageDegree; targets are skewed towards low ids (t = n * u^3), so a few accounts
+    // collect a large share of all followers like celebrities do.
+    static Edges powerLawFollows(int n, int averageDegree) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] follower = new long[n * averageDegree];
+        long[] followed = new long[follower.length];
+        int size = 0;
+        long[] targets = new long[0];
+        for (long user = 1; user <= n; user++) {
+            int degree = Math.min((int) (-averageDegree * Math.log(1 - random.nextDouble())), n - 1);
+            if (targets.length < degree) {
+                targets = new long[degree];
+            }
+            for (int k = 0; k < degree; k++) {
+                double u = random.nextDouble();
+                targets[k] = 1 + (long) (n * u * u * u);
+            }
+            Arrays.sort(targets, 0, degree);
+            long previous = 0;
+            for (int k = 0; k < degree; k++) {
+                long target = targets[k];
+                if (target == previous || target == user) {
+                    continue;
+                }
+                previous = target;
+                if (size == follower.length) {
+                    follower = Arrays.copyOf(follower, size * 2);
+                    followed = Arrays.copyOf(followed, size * 2);
+                }
+                follower[size] = user;
+                followed[size] = target;
+                size++;
+            }
+        }
+        return new Edges(Arrays.copyOf(follower, size), Arrays.copyOf(followed, size));
+    }
+
+    // A loaded FollowGraph over the edges, read through the same keyset paging as in production
+    static FollowGraph followGraph(Edges edges) {
+        RelationshipRepository repository = mock(RelationshipRepository.class, withSettings().stubOnly());
+        when(repository.findEdgesAfter(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            int from = edges.indexAfter(invocation.getArgument(0), invocation.getArgument(1));
+            int to = Math.min(from + invocation.<Pageable>getArgument(2).getPageSize(), edges.size());
+            List<Object[]> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                page.add(new Object[]{edges.follower[i], edges.followed[i]});
+            }
+            return page;
+        });
+        FollowGraph graph = new FollowGraph(repository);
+        graph.rebuild();
+        return graph;
+    }
+
+    static final class Edges {
+        final long[] follower;
+        final long[] followed;
+
+        Edges(long[] follower, long[] followed) {
+            this.follower = follower;
+            this.followed = followed;
+        }
+
+        int size() {
+            return follower.length;
+        }
+
+        // Index of the first edge after (followerId, followedId) in (follower, followed) order
+        int indexAfter(long followerId, long followedId) {
+            int low = 0, high = follower.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (follower[mid] < followerId || (follower[mid] == followerId && followed[mid] <= followedId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
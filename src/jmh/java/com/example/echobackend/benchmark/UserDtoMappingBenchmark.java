@@ -0,0 +1,91 @@
+package com.example.echobackend.benchmark;
+
+import com.example.echobackend.dto.UserDTO;
+import com.example.echobackend.model.User;
+import com.example.echobackend.model.UserStats;
+import com.example.echobackend.repository.RelationshipRepository;
+import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.service.FollowGraph;
+import com.example.echobackend.service.HomeTimelineStore;
+import com.example.echobackend.service.RelationshipService;
+import com.example.echobackend.service.StatsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// RelationshipService.toUserDTOs on a list of `users` entities, i.e. the per-user mapping cost
+// times the list size:
+//   fromFollowGraph: counts read from the in-memory follow graph
+//   fromUserStats:   the fallback with the graph not loaded, counts from one user_stats lookup
+//                    (stubbed with precomputed rows)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserDtoMappingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    private List<User> userList;
+    private RelationshipService graphBacked;
+    private RelationshipService statsBacked;
+
+    @Setup
+    public void setup() {
+        userList = Arrays.asList(SyntheticData.users(users));
+        FollowGraph graph = SyntheticData.followGraph(SyntheticData.powerLawFollows(users, 10));
+        graphBacked = new RelationshipService(mock(RelationshipRepository.class), mock(UserRepository.class),
+                mock(HomeTimelineStore.class), graph, mock(StatsService.class));
+
+        UserStats[] stats = new UserStats[users];
+        for (int i = 0; i < users; i++) {
+            long id = i + 1L;
+            stats[i] = new UserStats(id, graph.getFollowerCount(id), graph.getFollowingCount(id));
+        }
+        StatsService statsService = mock(StatsService.class, withSettings().stubOnly());
+        when(statsService.getUserStats(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            Map<Long, UserStats> result = new HashMap<>();
+            for (Long id : ids) {
+                result.put(id, stats[(int) (id - 1)]);
+            }
+            return result;
+        });
+        FollowGraph notLoaded = new FollowGraph(mock(RelationshipRepository.class));
+        statsBacked = new RelationshipService(mock(RelationshipRepository.class), mock(UserRepository.class),
+                mock(HomeTimelineStore.class), notLoaded, statsService);
+    }
+
+    @Benchmark
+    public List<UserDTO> fromFollowGraph() {
+        return graphBacked.toUserDTOs(userList);
+    }
+
+    @Benchmark
+    public List<UserDTO> fromUserStats() {
+        return statsBacked.toUserDTOs(userList);
+    }
+}
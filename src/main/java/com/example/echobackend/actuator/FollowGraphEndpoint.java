@@ -0,0 +1,36 @@
+package com.example.echobackend.actuator;
+
+import com.example.echobackend.service.FollowGraph;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/followgraph reports size and memory use, POST rebuilds it from the database.
+// Needs management.endpoints.web.exposure.include=followgraph to be reachable over HTTP.
+@Component
+@Endpoint(id = "followgraph")
+@RequiredArgsConstructor
+public class FollowGraphEndpoint {
+
+    private final FollowGraph followGraph;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", followGraph.isReady());
+        stats.put("edges", followGraph.edgeCount());
+        stats.put("memoryBytes", followGraph.memoryFootprintBytes());
+        return stats;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        followGraph.rebuild();
+        return stats();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.echobackend.actuator;
+
+import com.example.echobackend.service.UserSearchIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/usersearch reports index size, POST rebuilds it from the users table.
+// Needs management.endpoints.web.exposure.include=usersearch to be reachable over HTTP.
+@Component
+@Endpoint(id = "usersearch")
+@RequiredArgsConstructor
+public class UserSearchIndexEndpoint {
+
+    private final UserSearchIndex userSearchIndex;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", userSearchIndex.isReady());
+        stats.put("users", userSearchIndex.size());
+        stats.put("trigrams", userSearchIndex.trigramCount());
+        return stats;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        userSearchIndex.rebuild();
+        return stats();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.echobackend.config;
+
+import com.example.echobackend.model.Ids;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Moves every id block past the largest id already in its table before anything is inserted.
+// Rows written while the tables used AUTO_INCREMENT (or inserted with explicit ids, e.g. by a
+// restore) would otherwise collide with the first ids handed out. Only ever raises a block, so
+// several nodes starting at once are safe.
+@Slf4j
+@Component
+public class IdBlockAligner implements SmartInitializingSingleton {
+
+    // block name (Ids pkColumnValue) -> table whose id column it feeds
+    private static final Map<String, String> BLOCKS = Map.of(
+            "users", "users",
+            "posts", "posts",
+            "comments", "comments",
+            "stories", "stories");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdBlockAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        alignAll();
+    }
+
+    // Also for callers that insert rows with explicit ids later on. Blocks a node has already
+    // reserved are not affected, so this only helps before the table's first generated id.
+    public void alignAll() {
+        // Hibernate creates the table when it manages the schema; this covers deployments that don't
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + Ids.TABLE + " (" + Ids.NAME_COLUMN
+                + " VARCHAR(255) NOT NULL PRIMARY KEY, " + Ids.VALUE_COLUMN + " BIGINT)");
+        BLOCKS.forEach(this::align);
+    }
+
+    private void align(String block, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        long next = (maxId != null ? maxId : 0) + 1;
+
+        int raised = jdbcTemplate.update("UPDATE " + Ids.TABLE + " SET " + Ids.VALUE_COLUMN + " = ? WHERE "
+                + Ids.NAME_COLUMN + " = ? AND " + Ids.VALUE_COLUMN + " < ?", next, block, next);
+        if (raised > 0) {
+            log.info("Id block '{}' raised to {}", block, next);
+            return;
+        }
+        List<Long> current = jdbcTemplate.queryForList("SELECT " + Ids.VALUE_COLUMN + " FROM " + Ids.TABLE
+                + " WHERE " + Ids.NAME_COLUMN + " = ?", Long.class, block);
+        if (current.isEmpty()) {
+            try {
+                jdbcTemplate.update("INSERT INTO " + Ids.TABLE + " (" + Ids.NAME_COLUMN + ", " + Ids.VALUE_COLUMN
+                        + ") VALUES (?, ?)", block, next);
+            } catch (DuplicateKeyException e) {
+                // another node created it first; make sure it is high enough
+                align(block, table);
+            }
+        }
+    }
+}
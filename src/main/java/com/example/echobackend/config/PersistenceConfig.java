@@ -0,0 +1,49 @@
+package com.example.echobackend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// JDBC batching for Hibernate writes. Inserts and updates for the same table are grouped into
+// batches of db.batch-size statements (ordered so interleaved entity types don't break a batch up),
+// which only works because generated ids come from Ids' block table rather than IDENTITY columns.
+// Pooled-lo makes the stored block value the first id of the next block, which is what
+// IdBlockAligner writes.
+@Configuration
+public class PersistenceConfig {
+
+    @Value("${db.batch-size:50}")
+    private int batchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.put(AvailableSettings.ORDER_INSERTS, true);
+            properties.put(AvailableSettings.ORDER_UPDATES, true);
+            properties.put(AvailableSettings.BATCH_VERSIONED_DATA, true);
+            properties.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+        };
+    }
+
+    // Connector/J sends a JDBC batch as one statement per row unless it may rewrite it into a
+    // multi-row INSERT; without this, batching saves little more than the driver round trips.
+    // static so the post-processor is registered before the DataSource bean is created
+    @Bean
+    static BeanPostProcessor mysqlBatchRewriting() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getJdbcUrl() != null
+                        && dataSource.getJdbcUrl().startsWith("jdbc:mysql:")) {
+                    dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.echobackend.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+// @Scheduled jobs run on a pool of scheduling.pool-size threads instead of Spring Boot's single
+// scheduler thread, so a long job (the suggestion refresh, the stats reconcile) doesn't hold up
+// the short periodic flushes. With virtual threads Boot's scheduler starts a thread per run and
+// is left alone.
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer, DisposableBean {
+
+    private final Environment environment;
+    private ThreadPoolTaskScheduler scheduler;
+
+    public SchedulingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (ThreadingConfig.virtualThreadsEnabled(environment)) {
+            return;
+        }
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(environment.getProperty("scheduling.pool-size", Integer.class, 4));
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.echobackend.config;
 
 import com.example.echobackend.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -49,6 +50,9 @@ public class SecurityConfig {
                 // Ensure .cors() is here to apply CorsConfigurationSource to requests that go through the filter chain
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
+                        // Async uploads are re-dispatched once the body has been stored; the original
+                        // request was already authorized and the JWT filter does not run again
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**","/swagger-ui/**", "/v3/api-docs/**", "/swagger-resources/**", "/webjars/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/users/find/**").permitAll()
                         // --- NEW: Added back /api/upload/** and /api/test/** with permitAll() ---
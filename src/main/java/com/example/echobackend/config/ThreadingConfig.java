@@ -0,0 +1,67 @@
+package com.example.echobackend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Request execution mode. spring.threads.virtual.enabled=true makes Boot run Tomcat requests,
+// @Async and @Scheduled work on virtual threads (Java 21+), and UploadService copies bodies on
+// them too. Blocking calls then no longer tie up a platform thread each, so the number of
+// requests in flight is bounded by the JDBC pool instead of Tomcat's 200 workers: in that mode
+// the Hikari pool gets db.pool.virtual.max-size connections (if set) and a short checkout
+// timeout, so a request that cannot get a connection fails fast instead of queueing unbounded.
+@Slf4j
+@Configuration
+public class ThreadingConfig {
+
+    private final Environment environment;
+
+    public ThreadingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    public static boolean virtualThreadsEnabled(Environment environment) {
+        return environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                && VirtualThreads.isSupported();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportMode() {
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (requested && !VirtualThreads.isSupported()) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; "
+                    + "requests run on platform threads", Runtime.version().feature());
+        } else {
+            log.info("Request execution: {} threads", requested ? "virtual" : "platform");
+        }
+    }
+
+    // static so the post-processor is registered before the DataSource bean is created
+    @Bean
+    static BeanPostProcessor virtualThreadPoolSizing(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && virtualThreadsEnabled(environment)) {
+                    int maxSize = environment.getProperty("db.pool.virtual.max-size", Integer.class, 0);
+                    if (maxSize > 0) {
+                        dataSource.setMaximumPoolSize(maxSize);
+                    }
+                    Duration timeout = environment.getProperty("db.pool.virtual.connection-timeout",
+                            Duration.class, Duration.ofSeconds(5));
+                    dataSource.setConnectionTimeout(timeout.toMillis());
+                    log.info("Virtual-thread mode: JDBC pool of {} connections, {} ms checkout timeout",
+                            dataSource.getMaximumPoolSize(), dataSource.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -2,14 +2,13 @@ package com.example.echobackend.controller;
 
 import com.example.echobackend.dto.AddCommentRequest;
 import com.example.echobackend.dto.CommentResponse;
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.service.CommentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/comments")
 @RequiredArgsConstructor
@@ -18,10 +17,15 @@ public class CommentController {
     private final CommentService commentService;
 
     @GetMapping
-    public ResponseEntity<?> getComments(@RequestParam Long postId) {
+    public ResponseEntity<?> getComments(@RequestParam Long postId,
+                                         @RequestParam(required = false) Long parentId,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit) {
         try {
-            List<CommentResponse> comments = commentService.getComments(postId);
+            CursorPage<CommentResponse> comments = commentService.getComments(postId, parentId, cursor, limit);
             return ResponseEntity.ok(comments);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching comments: " + e.getMessage());
         }
@@ -32,6 +36,8 @@ public class CommentController {
         try {
             String message = commentService.addComment(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(message);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         } catch (Exception e) {
@@ -1,51 +1,58 @@
 package com.example.echobackend.controller;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.example.echobackend.service.UploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/upload")
+@RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000", methods = {RequestMethod.POST, RequestMethod.OPTIONS}, allowCredentials = "true") // NEW: Add this annotation for CORS
 public class FileUploadController {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    private final UploadService uploadService;
 
-    @PostMapping
-    public ResponseEntity<String> uploadFile(@RequestParam("file") MultipartFile file) {
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<String>> uploadFile(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new ResponseEntity<>("Please select a file to upload.", HttpStatus.BAD_REQUEST));
+        }
+        InputStream body;
         try {
-            if (file.isEmpty()) {
-                return new ResponseEntity<>("Please select a file to upload.", HttpStatus.BAD_REQUEST);
-            }
-
-            // Generate a unique filename
-            String filename = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path filePath = Paths.get(uploadDir, filename).toAbsolutePath().normalize();
-
-            // Create directories if they don't exist
-            Files.createDirectories(Paths.get(uploadDir));
-
-            // Copy the file to the specified path
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            return new ResponseEntity<>("File uploaded successfully. File path: " + filename, HttpStatus.OK);
+            body = file.getInputStream();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(UploadResponses.failure(e));
+        }
+        return UploadResponses.respond(
+                () -> uploadService.toLocalDisk(body, file.getOriginalFilename(), file.getSize(), null),
+                filename -> "File uploaded successfully. File path: " + filename);
+    }
 
+    // Any other content type is taken as the raw file: the request body is streamed to disk as it
+    // arrives instead of being parsed into a buffered MultipartFile first. Clients that send the
+    // body's SHA-256 in X-Content-SHA256 get the stored copy back without uploading it again.
+    @PostMapping
+    public CompletableFuture<ResponseEntity<String>> streamFile(@RequestParam(required = false) String filename,
+                                                                @RequestHeader(value = "X-Content-SHA256", required = false) String contentHash,
+                                                                HttpServletRequest request) {
+        InputStream body;
+        try {
+            body = request.getInputStream();
         } catch (IOException e) {
-            e.printStackTrace();
-            return new ResponseEntity<>("Failed to upload file: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR); // Added error message
-        } catch (Exception e) { // Catch any other unexpected exceptions
-            e.printStackTrace();
-            return new ResponseEntity<>("An unexpected error occurred during file upload: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(UploadResponses.failure(e));
         }
+        return UploadResponses.respond(
+                () -> uploadService.toLocalDisk(body, filename, request.getContentLengthLong(), contentHash),
+                stored -> "File uploaded successfully. File path: " + stored);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.example.echobackend.controller;
+
+import com.example.echobackend.dto.ImportPostRequest;
+import com.example.echobackend.dto.ImportRelationshipRequest;
+import com.example.echobackend.service.BulkImportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Bulk import for migrations and test environments. There is no admin role, so the endpoints
+// only exist when imports.enabled=true and should not be switched on for a public deployment.
+@RestController
+@RequestMapping("/api/import")
+@ConditionalOnProperty(name = "imports.enabled", havingValue = "true")
+public class ImportController {
+
+    private final BulkImportService bulkImportService;
+    private final int maxRows;
+
+    public ImportController(BulkImportService bulkImportService,
+                            @Value("${imports.max-rows:100000}") int maxRows) {
+        this.bulkImportService = bulkImportService;
+        this.maxRows = maxRows;
+    }
+
+    @PostMapping("/posts")
+    public ResponseEntity<String> importPosts(@RequestBody List<ImportPostRequest> rows) {
+        if (rows.size() > maxRows) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("At most " + maxRows + " rows per request.");
+        }
+        try {
+            int imported = bulkImportService.importPosts(rows);
+            return ResponseEntity.ok("Imported " + imported + " posts.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error importing posts.");
+        }
+    }
+
+    @PostMapping("/relationships")
+    public ResponseEntity<String> importRelationships(@RequestBody List<ImportRelationshipRequest> rows) {
+        if (rows.size() > maxRows) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("At most " + maxRows + " rows per request.");
+        }
+        try {
+            int imported = bulkImportService.importRelationships(rows);
+            return ResponseEntity.ok("Imported " + imported + " relationships.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error importing relationships.");
+        }
+    }
+}
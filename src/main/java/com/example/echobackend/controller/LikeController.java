@@ -1,14 +1,14 @@
 package com.example.echobackend.controller;
 
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.dto.LikeRequest;
+import com.example.echobackend.dto.LikeSummaryResponse;
 import com.example.echobackend.service.LikeService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/likes") // Maps to /api/likes
 @RequiredArgsConstructor
@@ -17,10 +17,26 @@ public class LikeController {
     private final LikeService likeService;
 
     @GetMapping
-    public ResponseEntity<?> getLikes(@RequestParam Long postId) {
+    public ResponseEntity<?> getLikes(@RequestParam Long postId,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit) {
         try {
-            List<Long> likedUserIds = likeService.getLikesForPost(postId);
+            CursorPage<Long> likedUserIds = likeService.getLikesForPost(postId, cursor, limit);
             return ResponseEntity.ok(likedUserIds);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching likes: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<?> getLikeSummary(@RequestParam Long postId) {
+        try {
+            LikeSummaryResponse summary = likeService.getLikeSummary(postId);
+            return ResponseEntity.ok(summary);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching likes: " + e.getMessage());
         }
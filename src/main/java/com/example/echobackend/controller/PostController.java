@@ -1,16 +1,21 @@
 package com.example.echobackend.controller;
 
 import com.example.echobackend.dto.AddPostRequest;
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.dto.PostResponse;
 import com.example.echobackend.service.PostService;
-import com.example.echobackend.service.S3Service; // Import S3Service
+import com.example.echobackend.service.UploadService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile; // Import MultipartFile
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/posts")
@@ -18,25 +23,51 @@ import java.util.List;
 public class PostController {
 
     private final PostService postService;
-    private final S3Service s3Service;
+    private final UploadService uploadService;
 
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<String>> uploadFile(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Cannot upload empty file."));
+        }
+        InputStream body;
+        try {
+            body = file.getInputStream();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(UploadResponses.failure(e));
+        }
+        return UploadResponses.respond(
+                () -> uploadService.toS3(body, file.getOriginalFilename(), file.getContentType(), file.getSize(), null),
+                fileUrl -> fileUrl);
+    }
+
+    // Raw body upload (Content-Type is the file's type), streamed to S3 without buffering the whole
+    // file; X-Content-SHA256 works as for /api/upload
     @PostMapping("/upload")
-    public ResponseEntity<String> uploadFile(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<String>> streamFile(@RequestParam(required = false) String filename,
+                                                                @RequestHeader(value = "X-Content-SHA256", required = false) String contentHash,
+                                                                HttpServletRequest request) {
+        InputStream body;
         try {
-            String fileUrl = s3Service.uploadFile(file);
-            return ResponseEntity.ok(fileUrl);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload file: " + e.getMessage());
+            body = request.getInputStream();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(UploadResponses.failure(e));
         }
+        return UploadResponses.respond(
+                () -> uploadService.toS3(body, filename, request.getContentType(), request.getContentLengthLong(), contentHash),
+                fileUrl -> fileUrl);
     }
 
     @GetMapping
-    public ResponseEntity<?> getPosts(@RequestParam(required = false) Long userId) {
+    public ResponseEntity<?> getPosts(@RequestParam(required = false) Long userId,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit) {
         try {
-            List<PostResponse> posts = postService.getPosts(userId);
+            CursorPage<PostResponse> posts = postService.getPosts(userId, cursor, limit);
             return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         } catch (Exception e) {
@@ -2,13 +2,12 @@ package com.example.echobackend.controller;
 
 import com.example.echobackend.model.User;
 import com.example.echobackend.service.RelationshipService;
-import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.dto.UserDTO;
 import com.example.echobackend.dto.RelationshipRequest;
 
@@ -20,12 +19,12 @@ import java.util.List;
 public class RelationshipController {
 
     private final RelationshipService relationshipService;
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
 
     @GetMapping
     public ResponseEntity<Boolean> checkFollowing(@RequestParam Long followedUserId) {
         try {
-            Long currentUserId = getCurrentAuthenticatedUserId();
+            Long currentUserId = currentUserResolver.findCurrentUserId();
             if (currentUserId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(false);
             }
@@ -41,7 +40,7 @@ public class RelationshipController {
     @PostMapping
     public ResponseEntity<String> addRelationship(@RequestBody RelationshipRequest request) {
         try {
-            Long followerUserId = getCurrentAuthenticatedUserId();
+            Long followerUserId = currentUserResolver.findCurrentUserId();
             if (followerUserId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated.");
             }
@@ -57,7 +56,7 @@ public class RelationshipController {
     @DeleteMapping
     public ResponseEntity<String> deleteRelationship(@RequestBody RelationshipRequest request) {
         try {
-            Long followerUserId = getCurrentAuthenticatedUserId();
+            Long followerUserId = currentUserResolver.findCurrentUserId();
             if (followerUserId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated.");
             }
@@ -70,18 +69,6 @@ public class RelationshipController {
         }
     }
 
-    private Long getCurrentAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getName())) {
-            return null;
-        }
-
-        String username = authentication.getName();
-        return userRepository.findByUsername(username)
-                .map(User::getId)
-                .orElse(null);
-    }
-
     @GetMapping("/followers/count")
     public ResponseEntity<Long> getFollowerCount(@RequestParam Long userId) {
         try {
@@ -103,29 +90,37 @@ public class RelationshipController {
     }
 
     @GetMapping("/followers/list")
-    public ResponseEntity<List<User>> getFollowersList(@RequestParam Long userId) {
+    public ResponseEntity<CursorPage<User>> getFollowersList(@RequestParam Long userId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit) {
         try {
-            List<User> followers = relationshipService.getFollowersList(userId);
+            CursorPage<User> followers = relationshipService.getFollowersList(userId, cursor, limit);
             return ResponseEntity.ok(followers);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CursorPage<>(List.of(), null));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new CursorPage<>(List.of(), null));
         }
     }
 
     @GetMapping("/following/list")
-    public ResponseEntity<List<User>> getFollowingList(@RequestParam Long userId) {
+    public ResponseEntity<CursorPage<User>> getFollowingList(@RequestParam Long userId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit) {
         try {
-            List<User> following = relationshipService.getFollowingList(userId);
+            CursorPage<User> following = relationshipService.getFollowingList(userId, cursor, limit);
             return ResponseEntity.ok(following);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CursorPage<>(List.of(), null));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new CursorPage<>(List.of(), null));
         }
     }
 
     @GetMapping("/friends/list")
     public ResponseEntity<List<UserDTO>> getMutualFriendsList(@RequestParam Long userId) {
         try {
-            Long currentUserId = getCurrentAuthenticatedUserId();
+            Long currentUserId = currentUserResolver.findCurrentUserId();
             if (currentUserId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(List.of());
             }
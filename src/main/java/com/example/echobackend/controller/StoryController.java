@@ -1,7 +1,10 @@
 package com.example.echobackend.controller;
 
 import com.example.echobackend.dto.AddStoryRequest;
+import com.example.echobackend.dto.CursorPage;
+import com.example.echobackend.dto.MarkStorySeenRequest;
 import com.example.echobackend.dto.StoryResponse;
+import com.example.echobackend.dto.StoryTrayEntry;
 import com.example.echobackend.service.StoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -18,10 +21,13 @@ public class StoryController {
     private final StoryService storyService;
 
     @GetMapping
-    public ResponseEntity<?> getStories() {
+    public ResponseEntity<?> getStories(@RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer limit) {
         try {
-            List<StoryResponse> stories = storyService.getStories();
+            CursorPage<StoryResponse> stories = storyService.getStories(cursor, limit);
             return ResponseEntity.ok(stories);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         } catch (Exception e) {
@@ -29,6 +35,32 @@ public class StoryController {
         }
     }
 
+    @GetMapping("/tray")
+    public ResponseEntity<?> getStoryTray(@RequestParam(defaultValue = "false") boolean unseenOnly) {
+        try {
+            List<StoryTrayEntry> tray = storyService.getStoryTray(unseenOnly);
+            return ResponseEntity.ok(tray);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching story tray: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/seen")
+    public ResponseEntity<String> markStorySeen(@RequestBody MarkStorySeenRequest request) {
+        try {
+            String message = storyService.markStorySeen(request);
+            return ResponseEntity.ok(message);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error marking story as seen.");
+        }
+    }
+
     @PostMapping
     public ResponseEntity<String> addStory(@RequestBody AddStoryRequest request) {
         try {
@@ -0,0 +1,48 @@
+package com.example.echobackend.controller;
+
+import com.example.echobackend.service.UploadTooLargeException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Maps upload results from UploadService to responses shared by the upload endpoints
+final class UploadResponses {
+
+    private UploadResponses() {
+    }
+
+    // upload may fail right away (pool full, declared size too large) or when the future completes
+    static CompletableFuture<ResponseEntity<String>> respond(Supplier<CompletableFuture<String>> upload,
+                                                             Function<String, String> body) {
+        CompletableFuture<String> result;
+        try {
+            result = upload.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(failure(e));
+        }
+        return result.handle((value, error) -> error == null
+                ? ResponseEntity.ok(body.apply(value))
+                : failure(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+    }
+
+    static ResponseEntity<String> failure(Throwable e) {
+        if (e instanceof UploadTooLargeException) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        }
+        if (e instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many uploads in progress, try again shortly.");
+        }
+        if (e instanceof IllegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload file: " + e.getMessage());
+    }
+}
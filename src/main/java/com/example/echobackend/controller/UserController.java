@@ -54,9 +54,9 @@ public class UserController {
     }
 
     @GetMapping("/suggestions")
-    public ResponseEntity<List<User>> getSuggestions() {
+    public ResponseEntity<List<UserDTO>> getSuggestions(@RequestParam(required = false) Integer limit) {
         try {
-            List<User> suggestions = userService.getSuggestions();
+            List<UserDTO> suggestions = userService.getSuggestions(limit);
             return ResponseEntity.ok(suggestions);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(List.of());
@@ -66,9 +66,10 @@ public class UserController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<User>> searchUsers(@RequestParam String query) {
+    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String query,
+                                                     @RequestParam(required = false) Integer limit) {
         try {
-            List<User> users = userService.searchUsers(query);
+            List<UserDTO> users = userService.searchUsers(query, limit);
             return ResponseEntity.ok(users);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
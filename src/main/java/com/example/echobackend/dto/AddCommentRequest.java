@@ -10,4 +10,5 @@ import lombok.NoArgsConstructor;
 public class AddCommentRequest {
     private String description; // Matches the 'desc' in your Node.js code
     private Long postId;
+    private Long parentId; // Optional: comment being replied to
 }
\ No newline at end of file
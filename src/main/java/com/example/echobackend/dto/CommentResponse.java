@@ -17,4 +17,6 @@ public class CommentResponse {
     private Long postId;
     private String name; // From User
     private String profilePic; // From User
+    private Long parentId;     // null for top-level comments
+    private long replyCount;   // Always 0 for replies
 }
\ No newline at end of file
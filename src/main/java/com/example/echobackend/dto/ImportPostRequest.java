@@ -0,0 +1,18 @@
+package com.example.echobackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One post for BulkImportService; createdAt defaults to the import time
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportPostRequest {
+    private Long userId;
+    private String description;
+    private String img;
+    private LocalDateTime createdAt;
+}
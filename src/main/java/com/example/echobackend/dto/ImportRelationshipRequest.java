@@ -0,0 +1,13 @@
+package com.example.echobackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRelationshipRequest {
+    private Long followerUserId;
+    private Long followedUserId;
+}
@@ -0,0 +1,14 @@
+package com.example.echobackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeSummaryResponse {
+    private Long postId;
+    private long likeCount;
+    private boolean likedByMe;
+}
@@ -0,0 +1,13 @@
+package com.example.echobackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkStorySeenRequest {
+    private Long authorId;
+    private Long storyId;
+}
@@ -12,11 +12,13 @@ import java.time.LocalDateTime; // Change this from java.sql.Timestamp
 public class PostResponse {
     private Long id;
     private String description;
-    private String img;
+    private String img;           // Feed-sized variant when there is one
+    private String imgFull;       // Full-size variant (or the original) for the detail view
     private LocalDateTime createdAt; // Changed to LocalDateTime
     private Long userId;          // This is fine, will be mapped from post.getUser().getId()
     private String name;          // From User
-    private String profilePic;    // From User
-    // private int likeCount;    // Keep as is if commented out
-    // private int commentCount; // Keep as is if commented out
+    private String profilePic;    // From User, avatar-sized
+    private long likeCount;       // From post_stats
+    private long commentCount;    // From post_stats
+    private boolean likedByMe;    // Whether the caller liked the post
 }
\ No newline at end of file
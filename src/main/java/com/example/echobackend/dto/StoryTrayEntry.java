@@ -0,0 +1,21 @@
+package com.example.echobackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryTrayEntry {
+    private Long userId;
+    private String name;              // From User
+    private String profilePic;        // From User
+    private Timestamp latestCreatedAt;
+    private Long lastSeenStoryId;     // null if the viewer has not seen any of this author's stories
+    private boolean hasUnseen;
+    private List<StoryResponse> stories; // Newest first
+}
@@ -0,0 +1,16 @@
+package com.example.echobackend.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a service (every public method) or a single method as an entry point timed by
+// ServiceMetricsAspect. Meant for what controllers call; helpers other services call per item
+// or per request (buffer lookups, counters) stay unannotated so they don't pay for a timer.
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface EntryPoint {
+}
@@ -0,0 +1,19 @@
+package com.example.echobackend.metrics;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+final class MetricTags {
+
+    private MetricTags() {
+    }
+
+    // Simple name of the underlying exception, or "none"
+    static String exception(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error == null ? "none" : error.getClass().getSimpleName();
+    }
+}
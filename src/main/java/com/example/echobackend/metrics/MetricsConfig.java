@@ -0,0 +1,18 @@
+package com.example.echobackend.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Metrics are published at /actuator/prometheus; like the other actuator endpoints it needs
+// management.endpoints.web.exposure.include=prometheus (plus health etc.) and a valid token,
+// so the scrape job has to send one as a bearer token.
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounting(SqlStatementCounter counter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.echobackend.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-query timers and row counts for the Spring Data repositories:
+//   repository.duration{repository, method, exception}
+//   repository.rows{repository, method}  rows returned by finders (collections, slices, optionals)
+// Inherited methods such as findById are tagged with our repository interface, not CrudRepository.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private static final String REPOSITORY_PACKAGE = "com.example.echobackend.repository";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+    // Meters are built once per key instead of being looked up in the registry on every query
+    private final Map<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..)) "
+            + "&& this(org.springframework.data.repository.Repository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(), RepositoryMetricsAspect::nameOf);
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            record(repository, method, start, e);
+            throw e;
+        }
+        record(repository, method, start, null);
+
+        long rows = rowCount(result);
+        if (rows >= 0) {
+            rowSummaries.computeIfAbsent(new MeterKey(repository, method, null),
+                    key -> DistributionSummary.builder("repository.rows")
+                            .tag("repository", key.repository())
+                            .tag("method", key.method())
+                            .register(meterRegistry))
+                    .record(rows);
+        }
+        return result;
+    }
+
+    private void record(String repository, String method, long start, Throwable error) {
+        timers.computeIfAbsent(new MeterKey(repository, method, MetricTags.exception(error)),
+                key -> Timer.builder("repository.duration")
+                        .tag("repository", key.repository())
+                        .tag("method", key.method())
+                        .tag("exception", key.exception())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // -1 for results that are not rows (counts, booleans, void)
+    static long rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private static String nameOf(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces()) {
+            if (type.getName().startsWith(REPOSITORY_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return proxyClass.getSimpleName();
+    }
+
+    // exception is null for the row summaries, which are not tagged with it
+    private record MeterKey(String repository, String method, String exception) {
+    }
+}
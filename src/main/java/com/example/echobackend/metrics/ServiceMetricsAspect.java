@@ -0,0 +1,62 @@
+package com.example.echobackend.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latency histogram per service entry point: service.duration{class, method, exception} for the
+// public methods of classes annotated @EntryPoint, or single methods annotated with it.
+// Methods returning a CompletionStage are timed until the stage completes, so async uploads
+// report the whole upload rather than just queueing it. Calls a service makes to itself do not
+// go through the proxy and are counted in the caller.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    // Timer.builder(...).register looks the meter up again on every call; this skips that
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("execution(public * *(..)) && (@within(com.example.echobackend.metrics.EntryPoint) "
+            + "|| @annotation(com.example.echobackend.metrics.EntryPoint))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            sample.stop(timer(className, method, e));
+            throw e;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, error) -> sample.stop(timer(className, method, error)));
+        } else {
+            sample.stop(timer(className, method, null));
+        }
+        return result;
+    }
+
+    private Timer timer(String className, String method, Throwable error) {
+        return timers.computeIfAbsent(new TimerKey(className, method, MetricTags.exception(error)),
+                key -> Timer.builder("service.duration")
+                        .tag("class", key.className())
+                        .tag("method", key.method())
+                        .tag("exception", key.exception())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    private record TimerKey(String className, String method, String exception) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.echobackend.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+// Counts the SQL statements Hibernate prepares on the current thread. Registered as Hibernate's
+// statement inspector by MetricsConfig; SqlStatementsFilter reads it once per request. Queries
+// sent through JdbcTemplate (the like batch writer) do not pass through Hibernate and are not counted.
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    void start() {
+        COUNT.set(new int[1]);
+    }
+
+    // Statements since start(); stops counting on this thread
+    int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
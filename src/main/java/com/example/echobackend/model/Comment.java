@@ -6,16 +6,21 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_parent_created", columnList = "post_id, parent_id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Comment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "comment_ids")
+    @TableGenerator(name = "comment_ids", table = Ids.TABLE, pkColumnName = Ids.NAME_COLUMN,
+            valueColumnName = Ids.VALUE_COLUMN, pkColumnValue = "comments", allocationSize = Ids.ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "description", columnDefinition = "TEXT") // Changed from 'desc'
@@ -30,5 +35,16 @@ public class Comment {
     @Column(nullable = false)
     private Long postId; // Foreign key to Post
 
-    
+    @Column(name = "parent_id")
+    private Long parentId; // Top-level comment this one replies to; null for top-level comments
+
+    // Truncated to the column's microseconds so a comment served from CommentPageCache hands out the
+    // same page cursor as its stored row; with nanoseconds the next page would repeat it.
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = new Timestamp(System.currentTimeMillis());
+        }
+        createdAt = Timestamp.from(createdAt.toInstant().truncatedTo(ChronoUnit.MICROS));
+    }
 }
\ No newline at end of file
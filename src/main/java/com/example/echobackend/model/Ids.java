@@ -0,0 +1,18 @@
+package com.example.echobackend.model;
+
+// Id generation shared by the entities with generated keys. MySQL has no sequences and IDENTITY
+// columns stop Hibernate from batching inserts (it needs each generated key back before the next
+// row), so ids come from a pooled block table instead: a node reserves ALLOCATION_SIZE ids with one
+// row update and hands them out from memory (pooled-lo, see PersistenceConfig). IdBlockAligner
+// raises the blocks past the existing ids on startup, so tables created with AUTO_INCREMENT keep
+// working unchanged.
+public final class Ids {
+
+    public static final String TABLE = "id_blocks";
+    public static final String NAME_COLUMN = "entity";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private Ids() {
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.echobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.Locale;
+
+// One stored copy of an uploaded file, keyed by the SHA-256 of its bytes. location is the value
+// posts, stories and profiles store in their img/pic columns; refCount counts those references.
+@Entity
+@Table(name = "media_objects",
+       uniqueConstraints = @UniqueConstraint(name = "uk_media_hash_storage", columnNames = {"content_hash", "storage"}),
+       indexes = {
+               @Index(name = "idx_media_location", columnList = "location", unique = true),
+               // Orphan sweep: unreferenced media not uploaded again recently
+               @Index(name = "idx_media_ref_uploaded", columnList = "ref_count, last_uploaded_at")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaObject {
+
+    public enum Storage { LOCAL, S3 }
+
+    // Resized copies made by ImageDerivativeService, by longest side in pixels
+    public enum Variant {
+        AVATAR(128), FEED(1080), FULL(2048);
+
+        private final int maxDimension;
+
+        Variant(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Storage storage;
+
+    // File name in file.upload-dir or S3 object key
+    @Column(nullable = false)
+    private String objectKey;
+
+    @Column(nullable = false, length = 512)
+    private String location;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "last_uploaded_at", nullable = false)
+    private Timestamp lastUploadedAt;
+
+    // Bit per Variant ordinal that has been generated; variants are stored as
+    // <contentHash>_<variant>.<variantFormat>
+    @Column(nullable = false)
+    private int variants;
+
+    @Column(length = 8)
+    private String variantFormat;
+
+    public boolean hasVariant(Variant variant) {
+        return (variants & (1 << variant.ordinal())) != 0;
+    }
+
+    public String variantKey(Variant variant) {
+        return contentHash + "_" + variant.name().toLowerCase(Locale.ROOT) + "." + variantFormat;
+    }
+}
@@ -4,9 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.CreationTimestamp; // Import this annotation
 
 import java.time.LocalDateTime; // Use LocalDateTime for modern date/time handling
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "posts")
@@ -16,7 +16,9 @@ import java.time.LocalDateTime; // Use LocalDateTime for modern date/time handli
 public class Post {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "post_ids")
+    @TableGenerator(name = "post_ids", table = Ids.TABLE, pkColumnName = Ids.NAME_COLUMN,
+            valueColumnName = Ids.VALUE_COLUMN, pkColumnValue = "posts", allocationSize = Ids.ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "description", columnDefinition = "TEXT")
@@ -25,7 +27,6 @@ public class Post {
     @Column(name = "img")
     private String img;
 
-    @CreationTimestamp // This will automatically set the creation timestamp
     @Column(name = "created_at", nullable = false, updatable = false) // Ensures non-null and not updatable after creation
     private LocalDateTime createdAt; // Changed from Timestamp to LocalDateTime
 
@@ -35,4 +36,15 @@ public class Post {
     private User user; // Reference to the User entity
 
     // The 'private Long userId;' field is removed as it's managed by the 'user' object now.
+
+    // Creation time unless one was given, which bulk imports do (@CreationTimestamp would overwrite it).
+    // Truncated to the column's microseconds so the in-memory post fanned out to timelines sorts
+    // exactly like the row read back later.
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        createdAt = createdAt.truncatedTo(ChronoUnit.MICROS);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.echobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Denormalized counters, maintained in the same transaction as the like/comment writes
+@Entity
+@Table(name = "post_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostStats {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(nullable = false)
+    private long likeCount;
+
+    @Column(nullable = false)
+    private long commentCount;
+}
@@ -6,16 +6,24 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "stories")
+@Table(name = "stories", indexes = {
+        // Story feed reads filter on (user_id, created_at)
+        @Index(name = "idx_stories_user_created", columnList = "user_id, created_at"),
+        // The expiry purge reads the oldest stories in (created_at, id) order straight off this index
+        @Index(name = "idx_stories_created", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Story {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "story_ids")
+    @TableGenerator(name = "story_ids", table = Ids.TABLE, pkColumnName = Ids.NAME_COLUMN,
+            valueColumnName = Ids.VALUE_COLUMN, pkColumnValue = "stories", allocationSize = Ids.ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "img") // Stores the URL/path to the image
@@ -27,5 +35,13 @@ public class Story {
     @Column(nullable = false)
     private Long userId; // Foreign key to the User table
 
-    
+    // Truncated to the column's microseconds so the story ActiveStoryStore keeps in memory compares
+    // exactly like the row a seen marker is later built from.
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = new Timestamp(System.currentTimeMillis());
+        }
+        createdAt = Timestamp.from(createdAt.toInstant().truncatedTo(ChronoUnit.MICROS));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.example.echobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+// How far a viewer has watched an author's stories: the (createdAt, id) of the newest story seen.
+// Stories are ordered by that pair, not by id alone (ids come from pooled blocks), so one marker
+// per (viewer, author) pair covers every story of that author.
+@Entity
+@Table(name = "story_views")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(StoryView.StoryViewId.class)
+public class StoryView {
+
+    @Id
+    @Column(nullable = false)
+    private Long viewerId;
+
+    @Id
+    @Column(nullable = false)
+    private Long authorId;
+
+    @Column(nullable = false)
+    private Long lastSeenStoryId;
+
+    @Column(nullable = false)
+    private Timestamp lastSeenCreatedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StoryViewId implements Serializable {
+        private Long viewerId;
+        private Long authorId;
+    }
+}
@@ -21,7 +21,9 @@ import java.util.List;
 public class User implements UserDetails {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_ids")
+    @TableGenerator(name = "user_ids", table = Ids.TABLE, pkColumnName = Ids.NAME_COLUMN,
+            valueColumnName = Ids.VALUE_COLUMN, pkColumnValue = "users", allocationSize = Ids.ALLOCATION_SIZE)
     private Long id;
 
     @Column(unique = true, nullable = false)
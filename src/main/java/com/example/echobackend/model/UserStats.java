@@ -0,0 +1,25 @@
+package com.example.echobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Denormalized counters, maintained in the same transaction as the relationship writes
+@Entity
+@Table(name = "user_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long followerCount;
+
+    @Column(nullable = false)
+    private long followingCount;
+}
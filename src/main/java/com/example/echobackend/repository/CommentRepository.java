@@ -1,13 +1,55 @@
 package com.example.echobackend.repository;
 
 import com.example.echobackend.model.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByPostIdOrderByCreatedAtDesc(Long postId);
     void deleteByIdAndUserId(Long id, Long userId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.parentId = :parentId")
+    int deleteRepliesOf(@Param("parentId") Long parentId);
+
+    // (postId, count) rows; posts without comments are absent from the result
+    @Query("SELECT c.postId, COUNT(c) FROM Comment c WHERE c.postId IN :postIds GROUP BY c.postId")
+    List<Object[]> countByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    // (parentId, count) rows; comments without replies are absent from the result
+    @Query("SELECT c.parentId, COUNT(c) FROM Comment c WHERE c.parentId IN :parentIds GROUP BY c.parentId")
+    List<Object[]> countRepliesByParentIds(@Param("parentIds") Collection<Long> parentIds);
+
+    // Top-level comments of a post
+    @Query("SELECT c FROM Comment c WHERE c.postId = :postId AND c.parentId IS NULL ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Comment> findPageByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.postId = :postId AND c.parentId IS NULL " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Comment> findPageByPostIdBefore(@Param("postId") Long postId,
+                                          @Param("createdAt") Timestamp createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.postId = :postId AND c.parentId = :parentId ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Comment> findRepliesPage(@Param("postId") Long postId, @Param("parentId") Long parentId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.postId = :postId AND c.parentId = :parentId " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Comment> findRepliesPageBefore(@Param("postId") Long postId,
+                                         @Param("parentId") Long parentId,
+                                         @Param("createdAt") Timestamp createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+}
@@ -3,8 +3,11 @@ package com.example.echobackend.repository;
 import com.example.echobackend.model.Like;
 // No direct import needed for Like.LikeId if it's referenced as an inner class
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +19,15 @@ public interface LikeRepository extends JpaRepository<Like, Like.LikeId> {
     Optional<Like> findByUserIdAndPostId(Long userId, Long postId);
 
     void deleteByUserIdAndPostId(Long userId, Long postId);
+
+    @Query("SELECT l.userId FROM Like l WHERE l.postId = :postId ORDER BY l.userId")
+    List<Long> findUserIdsByPostId(@Param("postId") Long postId);
+
+    // The subset of postIds the user has liked
+    @Query("SELECT l.postId FROM Like l WHERE l.userId = :userId AND l.postId IN :postIds")
+    List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
+    // (postId, count) rows; posts without likes are absent from the result
+    @Query("SELECT l.postId, COUNT(l) FROM Like l WHERE l.postId IN :postIds GROUP BY l.postId")
+    List<Object[]> countByPostIds(@Param("postIds") Collection<Long> postIds);
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.example.echobackend.repository;
+
+import com.example.echobackend.model.MediaObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MediaObjectRepository extends JpaRepository<MediaObject, Long> {
+
+    // Row locks serialize committing a new upload against reclaiming the same content
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM MediaObject m WHERE m.contentHash = :contentHash AND m.storage = :storage")
+    Optional<MediaObject> lockByContentHash(@Param("contentHash") String contentHash,
+                                            @Param("storage") MediaObject.Storage storage);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM MediaObject m WHERE m.location = :location")
+    Optional<MediaObject> lockByLocation(@Param("location") String location);
+
+    // Both return 0 for locations that are not managed media (external URLs, files from before dedupe)
+    @Modifying
+    @Query("UPDATE MediaObject m SET m.refCount = m.refCount + 1 WHERE m.location = :location")
+    int retain(@Param("location") String location);
+
+    @Modifying
+    @Query("UPDATE MediaObject m SET m.refCount = m.refCount + :count WHERE m.location = :location")
+    int retain(@Param("location") String location, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE MediaObject m SET m.refCount = m.refCount - 1 WHERE m.location = :location AND m.refCount > 0")
+    int release(@Param("location") String location);
+
+    List<MediaObject> findByLocationIn(Collection<String> locations);
+
+    @Query("SELECT m.location FROM MediaObject m WHERE m.location IN :locations")
+    List<String> findManagedLocations(@Param("locations") Collection<String> locations);
+
+    @Modifying
+    @Query("UPDATE MediaObject m SET m.variants = :variants, m.variantFormat = :format WHERE m.id = :id")
+    int setVariants(@Param("id") Long id, @Param("variants") int variants, @Param("format") String format);
+
+    @Query("SELECT m.location FROM MediaObject m WHERE m.refCount = 0 AND m.lastUploadedAt < :cutoff ORDER BY m.id")
+    List<String> findOrphanedLocations(@Param("cutoff") Timestamp cutoff, Pageable pageable);
+}
@@ -2,13 +2,40 @@ package com.example.echobackend.repository;
 
 import com.example.echobackend.model.Post;
 import com.example.echobackend.model.User; // Make sure User is imported here
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByUser_IdOrderByCreatedAtDesc(Long userId);
     List<Post> findByUser_IdInOrderByCreatedAtDesc(List<Long> userIds);
-}
\ No newline at end of file
+    List<Post> findByUser_IdInOrderByCreatedAtDesc(List<Long> userIds, Pageable pageable);
+
+    // Keyset pages, newest first. The "Before" variants continue after the (createdAt, id) of the
+    // last item of the previous page.
+    @Query("SELECT p FROM Post p WHERE p.user.id = :userId ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findPageByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.user.id = :userId " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findPageByUserIdBefore(@Param("userId") Long userId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.user.id IN :userIds " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findPageByUserIdInBefore(@Param("userIds") List<Long> userIds,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+}
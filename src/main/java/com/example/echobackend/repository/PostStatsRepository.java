@@ -0,0 +1,28 @@
+package com.example.echobackend.repository;
+
+import com.example.echobackend.model.PostStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+
+@Repository
+public interface PostStatsRepository extends JpaRepository<PostStats, Long> {
+
+    // Applies the deltas, creating the row if the post has none yet
+    @Modifying
+    @Query(value = "INSERT INTO post_stats (post_id, like_count, comment_count) " +
+                   "VALUES (:postId, GREATEST(:likeDelta, 0), GREATEST(:commentDelta, 0)) " +
+                   "ON DUPLICATE KEY UPDATE like_count = GREATEST(like_count + :likeDelta, 0), " +
+                   "comment_count = GREATEST(comment_count + :commentDelta, 0)", nativeQuery = true)
+    int upsertIncrement(@Param("postId") Long postId,
+                        @Param("likeDelta") long likeDelta,
+                        @Param("commentDelta") long commentDelta);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO post_stats (post_id, like_count, comment_count) VALUES (:postId, 0, 0)",
+           nativeQuery = true)
+    int insertIgnore(@Param("postId") Long postId);
+}
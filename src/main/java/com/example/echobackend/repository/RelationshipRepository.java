@@ -4,9 +4,14 @@ package com.example.echobackend.repository;
 
 import com.example.echobackend.model.Relationship;
 import com.example.echobackend.model.Relationship.RelationshipId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
  // Added for clarity in derived methods (though not strictly needed by JPA method names)
@@ -27,4 +32,33 @@ public interface RelationshipRepository extends JpaRepository<Relationship, Rela
     long countByFollowedUserId(Long followedUserId);
 
     long countByFollowerUserId(Long followerUserId);
+
+    // Batched counts as (userId, count) rows; users without relationships are absent from the result
+    @Query("SELECT r.followedUserId, COUNT(r) FROM Relationship r WHERE r.followedUserId IN :userIds GROUP BY r.followedUserId")
+    List<Object[]> countFollowersByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT r.followerUserId, COUNT(r) FROM Relationship r WHERE r.followerUserId IN :userIds GROUP BY r.followerUserId")
+    List<Object[]> countFollowingByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // All edges as (followerUserId, followedUserId) pairs, keyset paged in follower/followed order.
+    // Used to build the in-memory follow graph without loading Relationship entities.
+    @Query("SELECT r.followerUserId, r.followedUserId FROM Relationship r " +
+           "WHERE r.followerUserId > :followerUserId " +
+           "OR (r.followerUserId = :followerUserId AND r.followedUserId > :followedUserId) " +
+           "ORDER BY r.followerUserId, r.followedUserId")
+    List<Object[]> findEdgesAfter(@Param("followerUserId") Long followerUserId,
+                                  @Param("followedUserId") Long followedUserId,
+                                  Pageable pageable);
+
+    @Query("SELECT r.followerUserId, r.followedUserId FROM Relationship r WHERE r.followerUserId IN :followerUserIds")
+    List<Object[]> findEdgesByFollowerUserIds(@Param("followerUserIds") Collection<Long> followerUserIds);
+
+    // Keyset pages ordered by user id; pass 0 as afterUserId for the first page
+    @Query("SELECT r.followerUserId FROM Relationship r " +
+           "WHERE r.followedUserId = :userId AND r.followerUserId > :afterUserId ORDER BY r.followerUserId")
+    Slice<Long> findFollowerIdsPage(@Param("userId") Long userId, @Param("afterUserId") Long afterUserId, Pageable pageable);
+
+    @Query("SELECT r.followedUserId FROM Relationship r " +
+           "WHERE r.followerUserId = :userId AND r.followedUserId > :afterUserId ORDER BY r.followedUserId")
+    Slice<Long> findFollowedIdsPage(@Param("userId") Long userId, @Param("afterUserId") Long afterUserId, Pageable pageable);
 }
@@ -1,13 +1,46 @@
 package com.example.echobackend.repository;
 
 import com.example.echobackend.model.Story;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface StoryRepository extends JpaRepository<Story, Long> {
-    List<Story> findByUserIdInOrderByCreatedAtDesc(List<Long> userIds);
     void deleteByIdAndUserId(Long id, Long userId);
-}
\ No newline at end of file
+
+    // All stories created at or after :since, newest first
+    @Query("SELECT s FROM Story s WHERE s.userId IN :userIds AND s.createdAt >= :since " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Story> findActiveByUserIdIn(@Param("userIds") Collection<Long> userIds,
+                                     @Param("since") Timestamp since);
+
+    @Query("SELECT s FROM Story s WHERE s.userId IN :userIds AND s.createdAt >= :since " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    Slice<Story> findPageByUserIdIn(@Param("userIds") List<Long> userIds,
+                                    @Param("since") Timestamp since,
+                                    Pageable pageable);
+
+    @Query("SELECT s FROM Story s WHERE s.userId IN :userIds AND s.createdAt >= :since " +
+           "AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    Slice<Story> findPageByUserIdInBefore(@Param("userIds") List<Long> userIds,
+                                          @Param("since") Timestamp since,
+                                          @Param("createdAt") Timestamp createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    // Oldest first, in the order of idx_stories_created, so each batch is a short index range scan
+    @Query("SELECT s.id FROM Story s WHERE s.createdAt < :cutoff ORDER BY s.createdAt, s.id")
+    List<Long> findExpiredIds(@Param("cutoff") Timestamp cutoff, Pageable pageable);
+
+    @Query("SELECT s.img FROM Story s WHERE s.id IN :ids AND s.img IS NOT NULL")
+    List<String> findImgsByIdIn(@Param("ids") Collection<Long> ids);
+}
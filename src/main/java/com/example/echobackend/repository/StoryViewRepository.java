@@ -0,0 +1,13 @@
+package com.example.echobackend.repository;
+
+import com.example.echobackend.model.StoryView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StoryViewRepository extends JpaRepository<StoryView, StoryView.StoryViewId> {
+
+    List<StoryView> findByViewerId(Long viewerId);
+}
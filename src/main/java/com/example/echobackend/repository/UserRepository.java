@@ -1,9 +1,13 @@
 package com.example.echobackend.repository;
 
 import com.example.echobackend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set; // Import Set for the new method
@@ -13,6 +17,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
-    List<User> findByUsernameContainingIgnoreCaseOrNameContainingIgnoreCase(String usernameQuery, String nameQuery);
-    List<User> findAllByIdNotIn(Set<Long> userIdsToExclude);
+    List<User> findByUsernameContainingIgnoreCaseOrNameContainingIgnoreCase(String usernameQuery, String nameQuery, Pageable pageable);
+    List<User> findAllByIdNotIn(Set<Long> userIdsToExclude, Pageable pageable);
+
+    // (id, username, name) rows in id order, for building the search index in batches
+    @Query("SELECT u.id, u.username, u.name FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // (id, name, profilePic) rows, enough to render a post author without loading the whole user
+    @Query("SELECT u.id, u.name, u.profilePic FROM User u WHERE u.id IN :ids")
+    List<Object[]> findAuthorsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.echobackend.repository;
+
+import com.example.echobackend.model.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+
+    // Applies the deltas, creating the row if the user has none yet
+    @Modifying
+    @Query(value = "INSERT INTO user_stats (user_id, follower_count, following_count) " +
+                   "VALUES (:userId, GREATEST(:followerDelta, 0), GREATEST(:followingDelta, 0)) " +
+                   "ON DUPLICATE KEY UPDATE follower_count = GREATEST(follower_count + :followerDelta, 0), " +
+                   "following_count = GREATEST(following_count + :followingDelta, 0)", nativeQuery = true)
+    int upsertIncrement(@Param("userId") Long userId,
+                        @Param("followerDelta") long followerDelta,
+                        @Param("followingDelta") long followingDelta);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_stats (user_id, follower_count, following_count) VALUES (:userId, 0, 0)",
+           nativeQuery = true)
+    int insertIgnore(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.followerCount = s.followerCount + :followerDelta, " +
+           "s.followingCount = s.followingCount + :followingDelta WHERE s.userId IN :userIds")
+    int incrementAll(@Param("userIds") Collection<Long> userIds,
+                     @Param("followerDelta") long followerDelta,
+                     @Param("followingDelta") long followingDelta);
+
+    @Query("SELECT s.userId FROM UserStats s WHERE s.userId IN :userIds")
+    List<Long> findExistingUserIds(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,27 @@
+package com.example.echobackend.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+// Principal stored in the SecurityContext for a JWT-authenticated request. Carries the user id
+// from the token's "id" claim so services never have to look the user up by username.
+@Getter
+@AllArgsConstructor
+public class AuthenticatedUser implements Principal, Serializable {
+
+    private final Long id;
+    private final String username;
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
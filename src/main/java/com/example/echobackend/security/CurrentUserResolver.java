@@ -0,0 +1,47 @@
+package com.example.echobackend.security;
+
+import com.example.echobackend.model.User;
+import com.example.echobackend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+// Resolves the caller of the current request from the SecurityContext without touching the
+// users table. Use getCurrentUserReference() where an entity is needed only as a foreign key.
+@Component
+@RequiredArgsConstructor
+public class CurrentUserResolver {
+
+    private final UserRepository userRepository;
+
+    // Returns null for anonymous requests
+    public Long findCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.getId();
+        }
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    public Long getCurrentUserId() {
+        Long userId = findCurrentUserId();
+        if (userId == null) {
+            throw new RuntimeException("Not logged in!");
+        }
+        return userId;
+    }
+
+    // Uninitialized proxy; reading anything but its id triggers a SELECT
+    public User getCurrentUserReference() {
+        return userRepository.getReferenceById(getCurrentUserId());
+    }
+}
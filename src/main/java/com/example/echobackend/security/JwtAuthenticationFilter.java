@@ -1,33 +1,53 @@
 package com.example.echobackend.security;
 
+import com.example.echobackend.model.User;
+import com.example.echobackend.service.UserDetailsCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.SignatureException;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
+
+    // auth.jwt.verify{outcome}: signature/expiry check time, cache hits included
+    private final Timer verifyValid;
+    private final Timer verifyExpired;
+    private final Timer verifyInvalid;
+
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsCache userDetailsCache, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.userDetailsCache = userDetailsCache;
+        this.verifyValid = verifyTimer(meterRegistry, "valid");
+        this.verifyExpired = verifyTimer(meterRegistry, "expired");
+        this.verifyInvalid = verifyTimer(meterRegistry, "invalid");
+        Gauge.builder("auth.jwt.cache.size", jwtService, JwtService::cachedTokenCount)
+                .description("Verified tokens cached by JwtService")
+                .register(meterRegistry);
+    }
 
     @Override
     protected void doFilterInternal(
@@ -63,14 +83,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            // Verified once here; the result is reused for every check below
+            JwtService.VerifiedToken verified;
+            long start = System.nanoTime();
+            try {
+                verified = jwtService.verify(jwt);
+                verifyValid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (JwtException | IllegalArgumentException e) {
+                (e instanceof ExpiredJwtException ? verifyExpired : verifyInvalid)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+            userEmail = verified.username();
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = this.userDetailsCache.loadUserByUsername(userEmail);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (jwtService.isTokenValid(verified, userDetails)) {
+                    Long userId = verified.userId();
+                    if (userId == null && userDetails instanceof User user) {
+                        userId = user.getId();
+                    }
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            new AuthenticatedUser(userId, userDetails.getUsername()),
                             null,
                             userDetails.getAuthorities()
                     );
@@ -94,4 +129,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.jwt.verify")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 }
\ No newline at end of file
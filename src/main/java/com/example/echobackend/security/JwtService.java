@@ -1,6 +1,11 @@
 package com.example.echobackend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -9,7 +14,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.security.core.userdetails.UserDetails; // Added import
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,37 +28,76 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    private final long EXPIRATION_TIME;
 
-    @Value("${jwt.expiration}")
-    private long EXPIRATION_TIME;
+    // Built once; both are immutable and thread-safe
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    // SHA-256 of a token -> what the filter needs from it, so a session's repeat requests skip the
+    // HMAC check and JSON parsing. An entry expires with its token; the least used go first when
+    // the cache is full.
+    private final Cache<TokenHash, VerifiedToken> verifiedTokens;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long expirationTime,
+                      @Value("${jwt.cache.max-entries:10000}") int maxCachedTokens) {
+        this.EXPIRATION_TIME = expirationTime;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxCachedTokens)
+                .expireAfter(Expiry.<TokenHash, VerifiedToken>creating((hash, verified) ->
+                        Duration.ofMillis(Math.max(0, verified.expiresAt() - System.currentTimeMillis()))))
+                .build();
+    }
+
+    // Verifies the signature and expiry of a token carrying an expiration; throws the usual jjwt
+    // exceptions (ExpiredJwtException, SignatureException, MalformedJwtException, ...) for invalid
+    // tokens and IllegalArgumentException for one without an expiration.
+    public VerifiedToken verify(String token) {
+        TokenHash hash = TokenHash.of(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        Claims claims = validateToken(token);
+        if (claims.getExpiration() == null) {
+            throw new IllegalArgumentException("Token has no expiration.");
+        }
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), extractUserId(claims),
+                claims.getExpiration().getTime());
+        verifiedTokens.put(hash, verified);
+        return verified;
+    }
+
+    // Verifies the token and returns all of its claims, without the cache
+    public Claims validateToken(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).username();
     }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // The "id" claim written by generateToken, or null for tokens issued without one
+    public Long extractUserId(String token) {
+        return verify(token).userId();
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public Long extractUserId(Claims claims) {
+        Number id = claims.get("id", Number.class);
+        return id != null ? id.longValue() : null;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Date extractExpiration(String token) {
+        return new Date(verify(token).expiresAt());
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+        final Claims claims = validateToken(token);
+        return claimsResolver.apply(claims);
     }
 
     public String generateToken(Long userId, String username) {
@@ -63,16 +112,57 @@ public class JwtService {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            return isTokenValid(verify(token), userDetails);
+        } catch (ExpiredJwtException e) {
+            return false;
+        }
+    }
+
+    // For a token returned by verify, which has already checked signature and expiry
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.username() != null && token.username().equals(userDetails.getUsername())
+                && token.expiresAt() > System.currentTimeMillis();
+    }
+
+    public long cachedTokenCount() {
+        return verifiedTokens.estimatedSize();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // The subject, "id" claim (null if absent) and expiry of a verified token
+    public record VerifiedToken(String username, Long userId, long expiresAt) {
+    }
+
+    private static final class TokenHash {
+        private final byte[] digest;
+        private final int hashCode;
+
+        private TokenHash(byte[] digest) {
+            this.digest = digest;
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        static TokenHash of(String token) {
+            try {
+                return new TokenHash(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TokenHash that && Arrays.equals(digest, that.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
-}
\ No newline at end of file
+}
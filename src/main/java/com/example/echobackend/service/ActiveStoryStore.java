@@ -0,0 +1,229 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Story;
+import com.example.echobackend.repository.StoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Stories that are still inside the stories.ttl window, kept per author in a small ring so the
+// story feed is a merge of a few in-memory lists instead of a query per read. Authors are loaded
+// from the database on first read (one query for all missing authors) and kept fresh by
+// StoryService on add/delete; the purge job drops expired entries and empty rings.
+@Component
+public class ActiveStoryStore {
+
+    static final Comparator<Story> NEWEST_FIRST =
+            Comparator.comparing(Story::getCreatedAt).thenComparing(Story::getId).reversed();
+
+    private final StoryRepository storyRepository;
+    private final Duration ttl;
+    private final int capacity;
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final CacheLoadGuard<Long> loadGuard = new CacheLoadGuard<>();
+
+    public ActiveStoryStore(StoryRepository storyRepository,
+                            @Value("${stories.ttl:24h}") Duration ttl,
+                            @Value("${stories.ring.capacity:100}") int capacity) {
+        this.storyRepository = storyRepository;
+        this.ttl = ttl;
+        this.capacity = capacity;
+    }
+
+    // Stories created before this instant are expired
+    public Timestamp cutoff() {
+        return new Timestamp(System.currentTimeMillis() - ttl.toMillis());
+    }
+
+    // Newest first, optionally only those ordered after the cursor story
+    public List<Story> newest(Collection<Long> authorIds, PageCursor after, int limit) {
+        Timestamp cutoff = cutoff();
+        List<Story> result = new ArrayList<>();
+        for (Ring ring : ringsOf(authorIds).values()) {
+            ring.collect(cutoff, after, result);
+        }
+        result.sort(NEWEST_FIRST);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    // Active stories of every author that has any, newest first per author
+    public Map<Long, List<Story>> activeByAuthor(Collection<Long> authorIds) {
+        Timestamp cutoff = cutoff();
+        Map<Long, List<Story>> result = new HashMap<>();
+        ringsOf(authorIds).forEach((authorId, ring) -> {
+            List<Story> stories = new ArrayList<>();
+            ring.collect(cutoff, null, stories);
+            if (!stories.isEmpty()) {
+                stories.sort(NEWEST_FIRST);
+                result.put(authorId, stories);
+            }
+        });
+        return result;
+    }
+
+    // Only updates authors that are already loaded; the rest pick the story up on first read
+    public void add(Story story) {
+        loadGuard.write(story.getUserId(), () -> {
+            Ring ring = rings.get(story.getUserId());
+            if (ring != null) {
+                ring.add(story);
+            }
+        });
+    }
+
+    public void remove(Long authorId, Long storyId) {
+        loadGuard.write(authorId, () -> {
+            Ring ring = rings.get(authorId);
+            if (ring != null) {
+                ring.remove(storyId);
+            }
+        });
+    }
+
+    public void expire(Timestamp cutoff) {
+        rings.entrySet().removeIf(entry -> entry.getValue().expire(cutoff) == 0);
+    }
+
+    public int authorCount() {
+        return rings.size();
+    }
+
+    // The ring of every given author, loading the missing ones with one query. A loaded ring is
+    // only kept if no story of its author was added or removed while it loaded; this read uses
+    // it either way.
+    private Map<Long, Ring> ringsOf(Collection<Long> authorIds) {
+        Map<Long, Ring> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long authorId : authorIds) {
+            Ring ring = rings.get(authorId);
+            if (ring != null) {
+                result.put(authorId, ring);
+            } else {
+                missing.add(authorId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.putAll(loadGuard.loadAll(missing, this::load, rings::putIfAbsent));
+        }
+        return result;
+    }
+
+    private Map<Long, Ring> load(List<Long> authorIds) {
+        Map<Long, Ring> loaded = new HashMap<>();
+        for (Long authorId : authorIds) {
+            loaded.put(authorId, new Ring(capacity));
+        }
+        List<Story> stories = storyRepository.findActiveByUserIdIn(authorIds, cutoff());
+        // oldest first, so a full ring keeps the newest ones
+        for (int i = stories.size() - 1; i >= 0; i--) {
+            Story story = stories.get(i);
+            loaded.get(story.getUserId()).add(story);
+        }
+        return loaded;
+    }
+
+    // Stories of one author, oldest -> newest; once full the oldest story is dropped
+    private static final class Ring {
+        private final Story[] stories;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int head;
+        private int size;
+
+        Ring(int capacity) {
+            this.stories = new Story[Math.max(capacity, 1)];
+        }
+
+        void add(Story story) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    if (at(i).getId().equals(story.getId())) {
+                        return;
+                    }
+                }
+                if (size == stories.length) {
+                    stories[head] = null;
+                    head = (head + 1) % stories.length;
+                    size--;
+                }
+                stories[(head + size) % stories.length] = story;
+                size++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(Long storyId) {
+            lock.lock();
+            try {
+                int kept = 0;
+                Story[] remaining = new Story[size];
+                for (int i = 0; i < size; i++) {
+                    if (!at(i).getId().equals(storyId)) {
+                        remaining[kept++] = at(i);
+                    }
+                }
+                reset(remaining, kept);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns the number of stories left
+        int expire(Timestamp cutoff) {
+            lock.lock();
+            try {
+                while (size > 0 && at(0).getCreatedAt().before(cutoff)) {
+                    stories[head] = null;
+                    head = (head + 1) % stories.length;
+                    size--;
+                }
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void collect(Timestamp cutoff, PageCursor after, List<Story> into) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    Story story = at(i);
+                    if (!story.getCreatedAt().before(cutoff) && (after == null || isBefore(story, after))) {
+                        into.add(story);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Story at(int index) {
+            return stories[(head + index) % stories.length];
+        }
+
+        private void reset(Story[] remaining, int count) {
+            Arrays.fill(stories, null);
+            System.arraycopy(remaining, 0, stories, 0, count);
+            head = 0;
+            size = count;
+        }
+    }
+
+    private static boolean isBefore(Story story, PageCursor cursor) {
+        int byTime = story.getCreatedAt().compareTo(cursor.getCreatedAtTimestamp());
+        return byTime < 0 || (byTime == 0 && story.getId() < cursor.getId());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.echobackend.service;
 
+import com.example.echobackend.metrics.EntryPoint;
 import com.example.echobackend.model.User;
 import com.example.echobackend.repository.UserRepository;
 import com.example.echobackend.dto.RegisterRequest; // Assuming you have a RegisterRequest DTO
@@ -16,12 +17,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final UserSearchIndex userSearchIndex;
+    private final StatsService statsService;
 
     @Transactional
     public String register(RegisterRequest request) {
@@ -46,7 +50,9 @@ public class AuthService {
         user.setCity("Unknown");
         user.setWebsiteName("N/A");
         user.setWebsiteUrl("");
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        statsService.createUserStats(savedUser.getId());
+        TransactionHooks.afterCommit(() -> userSearchIndex.put(savedUser.getId(), savedUser.getUsername(), savedUser.getName()));
         return "User registered successfully!";
     }
     public User login(LoginRequest request) {
@@ -0,0 +1,203 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.dto.ImportPostRequest;
+import com.example.echobackend.dto.ImportRelationshipRequest;
+import com.example.echobackend.metrics.EntryPoint;
+import com.example.echobackend.model.Post;
+import com.example.echobackend.model.PostStats;
+import com.example.echobackend.model.Relationship;
+import com.example.echobackend.model.User;
+import com.example.echobackend.repository.RelationshipRepository;
+import com.example.echobackend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Bulk writes for migrations and seeding. Rows are persisted straight through the EntityManager
+// and flushed every db.batch-size rows, so Hibernate sends them as JDBC batches (see
+// PersistenceConfig) and the persistence context never holds more than one batch. Repository
+// save() would not do for relationships: with an assigned composite key it merges, i.e. selects
+// every row before inserting it. Each call is a single transaction.
+@Service
+@EntryPoint
+public class BulkImportService {
+
+    private static final int ID_CHUNK = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final UserRepository userRepository;
+    private final RelationshipRepository relationshipRepository;
+    private final RelationshipService relationshipService;
+    private final StatsService statsService;
+    private final MediaService mediaService;
+    private final FollowGraph followGraph;
+    private final HomeTimelineStore homeTimelineStore;
+    private final int batchSize;
+
+    public BulkImportService(UserRepository userRepository,
+                             RelationshipRepository relationshipRepository,
+                             RelationshipService relationshipService,
+                             StatsService statsService,
+                             MediaService mediaService,
+                             FollowGraph followGraph,
+                             HomeTimelineStore homeTimelineStore,
+                             @Value("${db.batch-size:50}") int batchSize) {
+        this.userRepository = userRepository;
+        this.relationshipRepository = relationshipRepository;
+        this.relationshipService = relationshipService;
+        this.statsService = statsService;
+        this.mediaService = mediaService;
+        this.followGraph = followGraph;
+        this.homeTimelineStore = homeTimelineStore;
+        this.batchSize = batchSize;
+    }
+
+    // Inserts the posts with zeroed counters. Imported posts are not fanned out: the timelines of
+    // their authors' followers are evicted and rebuilt from the database on the next feed read.
+    @Transactional
+    public int importPosts(List<ImportPostRequest> rows) {
+        Set<Long> authorIds = new HashSet<>();
+        for (ImportPostRequest row : rows) {
+            if (row.getUserId() == null) {
+                throw new IllegalArgumentException("Every post needs a userId.");
+            }
+            authorIds.add(row.getUserId());
+        }
+        requireUsers(authorIds);
+
+        List<String> media = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ImportPostRequest row = rows.get(i);
+            Post post = new Post();
+            post.setDescription(row.getDescription());
+            post.setImg(row.getImg());
+            post.setCreatedAt(row.getCreatedAt());
+            post.setUser(entityManager.getReference(User.class, row.getUserId()));
+            entityManager.persist(post);
+            entityManager.persist(new PostStats(post.getId(), 0, 0));
+            if (post.getImg() != null) {
+                media.add(post.getImg());
+            }
+            if ((i + 1) % batchSize == 0) {
+                flushBatch();
+            }
+        }
+        flushBatch();
+        // after the inserts: the reference count updates are JPQL and would flush a half-built batch
+        mediaService.retainAll(media);
+
+        TransactionHooks.afterCommit(() -> {
+            for (Long authorId : authorIds) {
+                homeTimelineStore.evict(authorId);
+                relationshipService.getFollowerUserIdsForUser(authorId).forEach(homeTimelineStore::evict);
+            }
+        });
+        return rows.size();
+    }
+
+    // Inserts the follows that don't exist yet and returns how many that was. Duplicates within the
+    // request and edges already stored are skipped, like addRelationship does for a single follow.
+    @Transactional
+    public int importRelationships(List<ImportRelationshipRequest> rows) {
+        Set<Relationship.RelationshipId> requested = new LinkedHashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> followerIds = new HashSet<>();
+        for (ImportRelationshipRequest row : rows) {
+            if (row.getFollowerUserId() == null || row.getFollowedUserId() == null) {
+                throw new IllegalArgumentException("Every relationship needs followerUserId and followedUserId.");
+            }
+            if (row.getFollowerUserId().equals(row.getFollowedUserId())) {
+                throw new IllegalArgumentException("User " + row.getFollowerUserId() + " cannot follow themselves.");
+            }
+            requested.add(new Relationship.RelationshipId(row.getFollowerUserId(), row.getFollowedUserId()));
+            userIds.add(row.getFollowerUserId());
+            userIds.add(row.getFollowedUserId());
+            followerIds.add(row.getFollowerUserId());
+        }
+        requireUsers(userIds);
+        requested.removeAll(existingEdges(followerIds));
+
+        List<Relationship> added = new ArrayList<>(requested.size());
+        for (Relationship.RelationshipId id : requested) {
+            Relationship relationship = new Relationship(id.getFollowerUserId(), id.getFollowedUserId());
+            entityManager.persist(relationship);
+            added.add(relationship);
+            if (added.size() % batchSize == 0) {
+                flushBatch();
+            }
+        }
+        flushBatch();
+        statsService.onFollows(added, 1);
+
+        TransactionHooks.afterCommit(() -> {
+            Set<Long> followers = new HashSet<>();
+            for (Relationship relationship : added) {
+                followGraph.addEdge(relationship.getFollowerUserId(), relationship.getFollowedUserId());
+                followers.add(relationship.getFollowerUserId());
+            }
+            followers.forEach(homeTimelineStore::evict);
+        });
+        return added.size();
+    }
+
+    private void flushBatch() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void requireUsers(Set<Long> userIds) {
+        Set<Long> found = new HashSet<>();
+        for (List<Long> chunk : chunks(userIds)) {
+            found.addAll(userRepository.findExistingIds(chunk));
+        }
+        for (Long userId : userIds) {
+            if (!found.contains(userId)) {
+                throw new IllegalArgumentException("User " + userId + " not found.");
+            }
+        }
+    }
+
+    private Set<Relationship.RelationshipId> existingEdges(Set<Long> followerIds) {
+        Set<Relationship.RelationshipId> existing = new HashSet<>();
+        if (followGraph.isReady()) {
+            for (Long followerId : followerIds) {
+                for (long followedId : followGraph.getFollowing(followerId)) {
+                    existing.add(new Relationship.RelationshipId(followerId, followedId));
+                }
+            }
+            return existing;
+        }
+        for (List<Long> chunk : chunks(followerIds)) {
+            for (Object[] edge : relationshipRepository.findEdgesByFollowerUserIds(chunk)) {
+                existing.add(new Relationship.RelationshipId((Long) edge[0], (Long) edge[1]));
+            }
+        }
+        return existing;
+    }
+
+    private static List<List<Long>> chunks(Set<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(ID_CHUNK);
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() == ID_CHUNK) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(ID_CHUNK);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
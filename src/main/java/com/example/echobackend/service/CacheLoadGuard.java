@@ -0,0 +1,109 @@
+package com.example.echobackend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Closes the window between a cache miss and installing what was loaded for it. The in-memory
+// caches here are loaded outside their locks and updated in place by writers that skip keys
+// they don't hold, so a load that read the database just before a write committed would
+// otherwise be installed without that write, and stay wrong until evicted.
+// Every write goes through write(), which counts it against the key while a load of the key is
+// in flight; a load is only installed if no write came in since it started. A discarded load is
+// still handed to its caller (it is as fresh as any read racing a write) and the next miss loads
+// again. Writes to keys nobody is loading cost one ConcurrentHashMap.compute on an absent key.
+final class CacheLoadGuard<K> {
+
+    private final Map<K, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    <V> V load(K key, Supplier<V> loader, Consumer<V> install) {
+        long writes = begin(key);
+        V loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException | Error e) {
+            finish(key, writes, null);
+            throw e;
+        }
+        finish(key, writes, () -> install.accept(loaded));
+        return loaded;
+    }
+
+    // One loader call for several keys; each key is installed or discarded on its own
+    <V> Map<K, V> loadAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader, BiConsumer<K, V> install) {
+        List<K> loading = new ArrayList<>(keys);
+        Map<K, Long> writes = new HashMap<>();
+        for (K key : loading) {
+            writes.put(key, begin(key));
+        }
+        Map<K, V> loaded;
+        try {
+            loaded = loader.apply(loading);
+        } catch (RuntimeException | Error e) {
+            writes.forEach((key, count) -> finish(key, count, null));
+            throw e;
+        }
+        writes.forEach((key, count) -> {
+            V value = loaded.get(key);
+            finish(key, count, value == null ? null : () -> install.accept(key, value));
+        });
+        return loaded;
+    }
+
+    // Applies a write to the cache; a load of the key that is in flight will not be installed.
+    // update runs while the key is locked against installs, so it must not call back into this guard.
+    void write(K key, Runnable update) {
+        inFlight.compute(key, (k, state) -> {
+            if (state != null) {
+                state.writes++;
+            }
+            update.run();
+            return state;
+        });
+    }
+
+    // For writes that touch every cached key. Loads in flight are fenced off first, so one that
+    // is installed before update runs is covered by update and one installed later is discarded.
+    void writeAll(Runnable update) {
+        for (K key : List.copyOf(inFlight.keySet())) {
+            inFlight.computeIfPresent(key, (k, state) -> {
+                state.writes++;
+                return state;
+            });
+        }
+        update.run();
+    }
+
+    private long begin(K key) {
+        long[] writes = new long[1];
+        inFlight.compute(key, (k, state) -> {
+            InFlight current = state != null ? state : new InFlight();
+            current.loaders++;
+            writes[0] = current.writes;
+            return current;
+        });
+        return writes[0];
+    }
+
+    private void finish(K key, long writesAtStart, Runnable install) {
+        inFlight.compute(key, (k, state) -> {
+            if (install != null && state.writes == writesAtStart) {
+                install.run();
+            }
+            return --state.loaders == 0 ? null : state;
+        });
+    }
+
+    // Only touched inside compute, which serializes access per key
+    private static final class InFlight {
+        int loaders;
+        long writes;
+    }
+}
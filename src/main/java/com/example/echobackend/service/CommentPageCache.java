@@ -0,0 +1,111 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Comment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Newest top-level comments of the most recently read posts with their reply counts. Each entry
+// holds up to comments.cache.depth comments (more than a page, so deletes don't force a reload)
+// and is updated in place by CommentService on add/delete. Authors are not cached; they are
+// hydrated per read so profile changes show up immediately. An entry is reloaded at least every
+// comments.cache.ttl however often it is updated, so it can't drift from the table for long.
+@Component
+public class CommentPageCache {
+
+    private final int depth;
+    private final Cache<Long, Entry> pages;
+    private final CacheLoadGuard<Long> loadGuard = new CacheLoadGuard<>();
+
+    public CommentPageCache(MeterRegistry meterRegistry,
+                            @Value("${comments.cache.max-posts:5000}") long maxPosts,
+                            @Value("${comments.cache.depth:40}") int depth,
+                            @Value("${comments.cache.ttl:10m}") Duration ttl) {
+        this.depth = depth;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPosts)
+                .expireAfter(Expiry.<Long, Entry>creating((postId, entry) -> ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "comment-pages");
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // The newest comments (up to limit + 1, the extra one telling the caller there is a next
+    // page). When the post is not cached, or the cached entry can't answer this limit, the entry
+    // is loaded with loader, which returns up to depth comments newest first. It is only cached
+    // if no comment of the post was added or deleted while it loaded.
+    public List<CachedComment> firstPage(Long postId, int limit, Supplier<Entry> loader) {
+        Entry entry = pages.getIfPresent(postId);
+        if (entry == null || (!entry.complete && entry.comments.size() <= limit)) {
+            entry = loadGuard.load(postId, () -> trimmed(loader.get()), loaded -> pages.put(postId, loaded));
+        }
+        return entry.comments.subList(0, Math.min(limit + 1, entry.comments.size()));
+    }
+
+    public void addComment(Comment comment) {
+        update(comment.getPostId(), entry -> {
+            List<CachedComment> comments = new ArrayList<>(entry.comments.size() + 1);
+            comments.add(new CachedComment(comment, 0));
+            comments.addAll(entry.comments);
+            return trimmed(new Entry(comments, entry.complete));
+        });
+    }
+
+    public void removeComment(Long postId, Long commentId) {
+        update(postId, entry -> {
+            List<CachedComment> comments = new ArrayList<>(entry.comments);
+            return comments.removeIf(cached -> cached.comment().getId().equals(commentId))
+                    ? new Entry(Collections.unmodifiableList(comments), entry.complete)
+                    : entry;
+        });
+    }
+
+    public void adjustReplyCount(Long postId, Long parentId, long delta) {
+        update(postId, entry -> {
+            List<CachedComment> comments = new ArrayList<>(entry.comments.size());
+            for (CachedComment cached : entry.comments) {
+                if (cached.comment().getId().equals(parentId)) {
+                    comments.add(new CachedComment(cached.comment(), Math.max(0, cached.replyCount() + delta)));
+                } else {
+                    comments.add(cached);
+                }
+            }
+            return new Entry(Collections.unmodifiableList(comments), entry.complete);
+        });
+    }
+
+    // Posts that are not cached are left alone; their next read loads them with the change
+    private void update(Long postId, UnaryOperator<Entry> change) {
+        loadGuard.write(postId, () -> pages.asMap().computeIfPresent(postId, (id, entry) -> change.apply(entry)));
+    }
+
+    // An entry keeps at most depth comments; one that had to be cut is no longer complete
+    private Entry trimmed(Entry entry) {
+        boolean trimmed = entry.comments.size() > depth;
+        List<CachedComment> kept = trimmed ? entry.comments.subList(0, depth) : entry.comments;
+        return new Entry(Collections.unmodifiableList(new ArrayList<>(kept)), entry.complete && !trimmed);
+    }
+
+    // Cached comments are shared between requests and must not be modified
+    public record CachedComment(Comment comment, long replyCount) {
+    }
+
+    // comments are newest first; complete means there are no older top-level comments
+    record Entry(List<CachedComment> comments, boolean complete) {
+    }
+}
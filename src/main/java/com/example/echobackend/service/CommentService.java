@@ -2,18 +2,22 @@ package com.example.echobackend.service;
 
 import com.example.echobackend.dto.AddCommentRequest;
 import com.example.echobackend.dto.CommentResponse;
+import com.example.echobackend.dto.CursorPage;
+import com.example.echobackend.metrics.EntryPoint;
 import com.example.echobackend.model.Comment;
-import com.example.echobackend.model.User;
+import com.example.echobackend.model.MediaObject;
 import com.example.echobackend.repository.CommentRepository;
 import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,44 +25,87 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class CommentService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
+    private final StatsService statsService;
+    private final CommentPageCache commentPageCache;
+    private final MediaUrlResolver mediaUrlResolver;
+
+    // Top-level comments of a post, or the replies to parentId when given. The newest page of
+    // top-level comments is served from CommentPageCache for posts that are read often.
+    public CursorPage<CommentResponse> getComments(Long postId, Long parentId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit, DEFAULT_PAGE_SIZE);
+
+        List<CommentPageCache.CachedComment> page;
+        if (parentId == null && after == null && pageSize < commentPageCache.getDepth()) {
+            page = commentPageCache.firstPage(postId, pageSize, () -> {
+                Slice<Comment> slice = commentRepository.findPageByPostId(postId, PageRequest.of(0, commentPageCache.getDepth()));
+                return new CommentPageCache.Entry(withReplyCounts(slice.getContent()), !slice.hasNext());
+            });
+        } else {
+            // one extra row tells us whether there is a next page
+            PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+            List<Comment> comments;
+            if (parentId == null) {
+                comments = after == null
+                        ? commentRepository.findPageByPostId(postId, pageRequest).getContent()
+                        : commentRepository.findPageByPostIdBefore(postId, after.getCreatedAtTimestamp(), after.getId(), pageRequest).getContent();
+                page = withReplyCounts(comments);
+            } else {
+                comments = after == null
+                        ? commentRepository.findRepliesPage(postId, parentId, pageRequest).getContent()
+                        : commentRepository.findRepliesPageBefore(postId, parentId, after.getCreatedAtTimestamp(), after.getId(), pageRequest).getContent();
+                page = comments.stream().map(comment -> new CommentPageCache.CachedComment(comment, 0)).collect(Collectors.toList());
+            }
+        }
 
-    public List<CommentResponse> getComments(Long postId) {
-        List<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtDesc(postId);
+        boolean hasNext = page.size() > pageSize;
+        if (hasNext) {
+            page = page.subList(0, pageSize);
+        }
 
-        Set<Long> userIds = comments.stream().map(Comment::getUserId).collect(Collectors.toSet());
-        Map<Long, User> usersMap = userRepository.findAllById(userIds)
+        Set<Long> userIds = page.stream().map(cached -> cached.comment().getUserId()).collect(Collectors.toSet());
+        Map<Long, Object[]> authors = userIds.isEmpty() ? Map.of() : userRepository.findAuthorsByIds(userIds)
                 .stream()
-                .collect(Collectors.toMap(User::getId, Function.identity()));
+                .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+        MediaUrlResolver.Resolved media = mediaUrlResolver.resolve(
+                authors.values().stream().map(author -> (String) author[2]).collect(Collectors.toList()));
 
-        return comments.stream().map(comment -> {
-            User commentUser = usersMap.get(comment.getUserId());
+        List<CommentResponse> items = page.stream().map(cached -> {
+            Comment comment = cached.comment();
+            Object[] author = authors.get(comment.getUserId());
             return new CommentResponse(
                 comment.getId(),
                 comment.getDescription(),
                 comment.getCreatedAt(),
                 comment.getUserId(),
                 comment.getPostId(),
-                commentUser != null ? commentUser.getName() : null,
-                commentUser != null ? commentUser.getProfilePic() : null
+                author != null ? (String) author[1] : null,
+                author != null ? media.url((String) author[2], MediaObject.Variant.AVATAR) : null,
+                comment.getParentId(),
+                cached.replyCount()
             );
         }).collect(Collectors.toList());
-    }
 
-    public String addComment(AddCommentRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
+        String nextCursor = null;
+        if (hasNext) {
+            Comment last = page.get(page.size() - 1).comment();
+            nextCursor = PageCursor.of(last.getCreatedAt(), last.getId()).encode();
         }
+        return new CursorPage<>(items, nextCursor);
+    }
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+    @Transactional
+    public String addComment(AddCommentRequest request) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
         Comment newComment = new Comment();
         newComment.setDescription(request.getDescription());
@@ -66,31 +113,59 @@ public class CommentService {
         newComment.setUserId(currentUserId);
         newComment.setPostId(request.getPostId());
 
-        commentRepository.save(newComment);
+        if (request.getParentId() != null) {
+            Comment parent = commentRepository.findById(request.getParentId())
+                    .filter(c -> c.getPostId().equals(request.getPostId()))
+                    .orElseThrow(() -> new IllegalArgumentException("Parent comment not found on this post."));
+            // Threads are one level deep: a reply to a reply joins the top-level comment's thread
+            newComment.setParentId(parent.getParentId() != null ? parent.getParentId() : parent.getId());
+        }
+
+        Comment savedComment = commentRepository.save(newComment);
+        statsService.onComment(request.getPostId(), 1);
+        TransactionHooks.afterCommit(() -> {
+            if (savedComment.getParentId() == null) {
+                commentPageCache.addComment(savedComment);
+            } else {
+                commentPageCache.adjustReplyCount(savedComment.getPostId(), savedComment.getParentId(), 1);
+            }
+        });
         return "Comment has been created.";
     }
 
     @Transactional
     public String deleteComment(Long commentId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not authenticated!");
-        }
-
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
-        boolean exists = commentRepository.findById(commentId)
-                .map(comment -> comment.getUserId().equals(currentUserId))
-                .orElse(false);
-
-        if (!exists) {
-            throw new RuntimeException("You can delete only your comment or comment not found!");
-        }
+        Comment comment = commentRepository.findById(commentId)
+                .filter(c -> c.getUserId().equals(currentUserId))
+                .orElseThrow(() -> new RuntimeException("You can delete only your comment or comment not found!"));
 
         commentRepository.deleteByIdAndUserId(commentId, currentUserId);
+        long deleted = 1;
+        if (comment.getParentId() == null) {
+            // Replies go with the comment they belong to
+            deleted += commentRepository.deleteRepliesOf(commentId);
+        }
+        statsService.onComment(comment.getPostId(), -deleted);
+        TransactionHooks.afterCommit(() -> {
+            if (comment.getParentId() == null) {
+                commentPageCache.removeComment(comment.getPostId(), commentId);
+            } else {
+                commentPageCache.adjustReplyCount(comment.getPostId(), comment.getParentId(), -1);
+            }
+        });
         return "Comment has been deleted!";
     }
+
+    private List<CommentPageCache.CachedComment> withReplyCounts(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Long> replyCounts = StatsService.toCountMap(commentRepository.countRepliesByParentIds(
+                comments.stream().map(Comment::getId).collect(Collectors.toList())));
+        return comments.stream()
+                .map(comment -> new CommentPageCache.CachedComment(comment, replyCounts.getOrDefault(comment.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.RelationshipRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory copy of the relationships table. Every user has two sorted long[] adjacency arrays:
+// the users they follow (out-edges) and the users following them (in-edges).
+// Arrays are never modified in place, writers swap in a new copy, so readers need no locking.
+// The database stays the source of truth; the graph can be rebuilt from it at any time.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FollowGraph {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final RelationshipRepository relationshipRepository;
+
+    private volatile Map<Long, long[]> following = new ConcurrentHashMap<>();
+    private volatile Map<Long, long[]> followers = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Held across the database reads of a rebuild, so it has to be a lock a virtual thread can
+    // wait on without pinning its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Until a rebuild succeeds, RelationshipService keeps answering from the database
+            log.warn("Could not load follow graph, falling back to database queries", e);
+        }
+    }
+
+    // Writes wait for the rebuild to finish, so no edge added meanwhile is lost
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, LongBuffer> out = new HashMap<>();
+            Map<Long, LongBuffer> in = new HashMap<>();
+
+            long lastFollower = 0L;
+            long lastFollowed = 0L;
+            List<Object[]> batch;
+            do {
+                batch = relationshipRepository.findEdgesAfter(lastFollower, lastFollowed, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (Object[] edge : batch) {
+                    lastFollower = (Long) edge[0];
+                    lastFollowed = (Long) edge[1];
+                    out.computeIfAbsent(lastFollower, id -> new LongBuffer()).add(lastFollowed);
+                    in.computeIfAbsent(lastFollowed, id -> new LongBuffer()).add(lastFollower);
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+
+            following = toSortedArrays(out);
+            followers = toSortedArrays(in);
+            ready = true;
+            log.info("Follow graph loaded: {} edges, ~{} KB in {} ms",
+                    edgeCount(), memoryFootprintBytes() / 1024, System.currentTimeMillis() - start);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isFollowing(long followerUserId, long followedUserId) {
+        return Arrays.binarySearch(getFollowing(followerUserId), followedUserId) >= 0;
+    }
+
+    // Returned arrays are shared snapshots and must not be modified by callers
+    public long[] getFollowing(long userId) {
+        return following.getOrDefault(userId, EMPTY);
+    }
+
+    public long[] getFollowers(long userId) {
+        return followers.getOrDefault(userId, EMPTY);
+    }
+
+    public int getFollowingCount(long userId) {
+        return getFollowing(userId).length;
+    }
+
+    public int getFollowerCount(long userId) {
+        return getFollowers(userId).length;
+    }
+
+    public void addEdge(long followerUserId, long followedUserId) {
+        writeLock.lock();
+        try {
+            following.put(followerUserId, insert(getFollowing(followerUserId), followedUserId));
+            followers.put(followedUserId, insert(getFollowers(followedUserId), followerUserId));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeEdge(long followerUserId, long followedUserId) {
+        writeLock.lock();
+        try {
+            following.put(followerUserId, delete(getFollowing(followerUserId), followedUserId));
+            followers.put(followedUserId, delete(getFollowers(followedUserId), followerUserId));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Drops a deleted user with every edge to or from them, so they leave their followers' and
+    // followings' adjacency arrays too
+    public void removeUser(long userId) {
+        writeLock.lock();
+        try {
+            for (long followedUserId : getFollowing(userId)) {
+                followers.put(followedUserId, delete(getFollowers(followedUserId), userId));
+            }
+            for (long followerUserId : getFollowers(userId)) {
+                following.put(followerUserId, delete(getFollowing(followerUserId), userId));
+            }
+            following.remove(userId);
+            followers.remove(userId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long edgeCount() {
+        long edges = 0;
+        for (long[] adjacency : following.values()) {
+            edges += adjacency.length;
+        }
+        return edges;
+    }
+
+    // Rough estimate: array header + 8 bytes per id, plus a boxed key and map node per user
+    public long memoryFootprintBytes() {
+        return footprint(following) + footprint(followers);
+    }
+
+    // Sorted-merge intersection of two adjacency arrays
+    public static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private static long footprint(Map<Long, long[]> adjacency) {
+        long bytes = 0;
+        for (long[] ids : adjacency.values()) {
+            bytes += 16 + 8L * ids.length + 16 + 32;
+        }
+        return bytes;
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) {
+            return ids;
+        }
+        pos = -pos - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, pos);
+        result[pos] = id;
+        System.arraycopy(ids, pos, result, pos + 1, ids.length - pos);
+        return result;
+    }
+
+    private static long[] delete(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return ids;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, pos);
+        System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+        return result;
+    }
+
+    private static Map<Long, long[]> toSortedArrays(Map<Long, LongBuffer> buffers) {
+        Map<Long, long[]> result = new ConcurrentHashMap<>(Math.max(16, buffers.size() * 4 / 3));
+        buffers.forEach((userId, buffer) -> {
+            long[] ids = buffer.toArray();
+            Arrays.sort(ids);
+            result.put(userId, ids);
+        });
+        return result;
+    }
+
+    private static final class LongBuffer {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Post;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Materialized home timelines: for every user that has read their feed we keep the newest
+// post ids (and their authors) so a feed read is a bounded lookup instead of an IN-list scan.
+// Timelines are filled lazily from the database on first read and kept fresh by fan-out on write;
+// only the most recently read feed.timeline.max-users are kept, and idle ones expire.
+// Entries are ordered like the feed itself, by (createdAt, id): ids come from pooled blocks and
+// imports carry their own timestamps, so id order is not time order.
+@Component
+public class HomeTimelineStore {
+
+    private final int capacity;
+    private final Cache<Long, Timeline> timelines;
+    private final CacheLoadGuard<Long> loadGuard = new CacheLoadGuard<>();
+
+    // Authors above the fan-out threshold. Their posts are not pushed into follower timelines
+    // and are merged in at read time instead. Marks are sticky so older posts are never lost.
+    private final Set<Long> celebrityAuthors = ConcurrentHashMap.newKeySet();
+
+    public HomeTimelineStore(MeterRegistry meterRegistry,
+                             @Value("${feed.timeline.capacity:300}") int capacity,
+                             @Value("${feed.timeline.max-users:100000}") long maxUsers,
+                             @Value("${feed.timeline.ttl:1h}") Duration ttl) {
+        this.capacity = capacity;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, timelines, "home-timelines");
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Only pushes into timelines that are already materialized; the rest are rebuilt from the
+    // database on their next read and will pick the post up there.
+    public void push(Long userId, Post post) {
+        loadGuard.write(userId, () -> {
+            Timeline timeline = quietly(userId);
+            if (timeline != null) {
+                timeline.add(timeKey(post.getCreatedAt()), post.getId(), post.getUser().getId());
+            }
+        });
+    }
+
+    public void remove(Long userId, Long postId) {
+        loadGuard.write(userId, () -> {
+            Timeline timeline = quietly(userId);
+            if (timeline != null) {
+                timeline.removePost(postId);
+            }
+        });
+    }
+
+    public void removeEverywhere(Long postId) {
+        loadGuard.writeAll(() -> {
+            for (Timeline timeline : timelines.asMap().values()) {
+                timeline.removePost(postId);
+            }
+        });
+    }
+
+    public void removeAuthor(Long userId, Long authorId) {
+        loadGuard.write(userId, () -> {
+            Timeline timeline = quietly(userId);
+            if (timeline != null) {
+                timeline.removeAuthor(authorId);
+            }
+        });
+    }
+
+    public void evict(Long userId) {
+        loadGuard.write(userId, () -> timelines.invalidate(userId));
+    }
+
+    // Newest post ids first, optionally only those after the cursor. A timeline that is not
+    // materialized yet is built from loader, which returns its newest posts, newest first. If
+    // the timeline changes while it is loading, this read is answered from the loaded copy but
+    // the copy is not kept, and the next read loads again.
+    public List<Long> newest(Long userId, PageCursor after, int limit, Supplier<List<Post>> loader) {
+        Timeline timeline = timelines.getIfPresent(userId);
+        if (timeline == null) {
+            timeline = loadGuard.load(userId, () -> {
+                List<Post> posts = loader.get();
+                Timeline loaded = new Timeline(capacity);
+                for (int i = posts.size() - 1; i >= 0; i--) {
+                    Post post = posts.get(i);
+                    loaded.add(timeKey(post.getCreatedAt()), post.getId(), post.getUser().getId());
+                }
+                return loaded;
+            }, loaded -> timelines.put(userId, loaded));
+        }
+        return after == null
+                ? timeline.newest(Long.MAX_VALUE, Long.MAX_VALUE, limit)
+                : timeline.newest(timeKey(after.getCreatedAt()), after.getId(), limit);
+    }
+
+    public boolean isCelebrity(Long authorId) {
+        return celebrityAuthors.contains(authorId);
+    }
+
+    public void markCelebrity(Long authorId) {
+        celebrityAuthors.add(authorId);
+    }
+
+    public boolean hasCelebrities() {
+        return !celebrityAuthors.isEmpty();
+    }
+
+    public List<Long> celebritiesAmong(Collection<Long> authorIds) {
+        List<Long> result = new ArrayList<>();
+        for (Long authorId : authorIds) {
+            if (celebrityAuthors.contains(authorId)) {
+                result.add(authorId);
+            }
+        }
+        return result;
+    }
+
+    // Writes look timelines up without counting as an access, so a user who stopped reading their
+    // feed still expires while the authors they follow keep posting
+    private Timeline quietly(Long userId) {
+        return timelines.policy().getIfPresentQuietly(userId);
+    }
+
+    // createdAt as epoch microseconds, the precision the posts table stores (see Post.onCreate)
+    static long timeKey(LocalDateTime createdAt) {
+        return createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + createdAt.getNano() / 1_000;
+    }
+
+    // Entries are kept oldest -> newest by (time, postId); once full, the oldest entry is dropped.
+    private static final class Timeline {
+        private final long[] times;
+        private final long[] postIds;
+        private final long[] authorIds;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int size;
+
+        Timeline(int capacity) {
+            this.times = new long[Math.max(capacity, 1)];
+            this.postIds = new long[Math.max(capacity, 1)];
+            this.authorIds = new long[Math.max(capacity, 1)];
+        }
+
+        void add(long time, long postId, long authorId) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    if (postIds[i] == postId) {
+                        return;
+                    }
+                }
+                int pos = size;
+                while (pos > 0 && isAfter(times[pos - 1], postIds[pos - 1], time, postId)) {
+                    pos--;
+                }
+                if (size == postIds.length) {
+                    if (pos == 0) {
+                        return; // older than everything we keep
+                    }
+                    shift(1, 0, pos - 1);
+                    pos--;
+                } else {
+                    shift(pos, pos + 1, size - pos);
+                    size++;
+                }
+                times[pos] = time;
+                postIds[pos] = postId;
+                authorIds[pos] = authorId;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removePost(long postId) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    if (postIds[i] == postId) {
+                        shift(i + 1, i, size - i - 1);
+                        size--;
+                        return;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeAuthor(long authorId) {
+            lock.lock();
+            try {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (authorIds[i] != authorId) {
+                        times[kept] = times[i];
+                        postIds[kept] = postIds[i];
+                        authorIds[kept] = authorIds[i];
+                        kept++;
+                    }
+                }
+                size = kept;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Newest first, only entries strictly before (beforeTime, beforePostId)
+        List<Long> newest(long beforeTime, long beforePostId, int limit) {
+            lock.lock();
+            try {
+                List<Long> result = new ArrayList<>(Math.min(limit, size));
+                for (int i = size - 1; i >= 0 && result.size() < limit; i--) {
+                    if (isAfter(beforeTime, beforePostId, times[i], postIds[i])) {
+                        result.add(postIds[i]);
+                    }
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void shift(int from, int to, int length) {
+            System.arraycopy(times, from, times, to, length);
+            System.arraycopy(postIds, from, postIds, to, length);
+            System.arraycopy(authorIds, from, authorIds, to, length);
+        }
+
+        private static boolean isAfter(long time, long postId, long otherTime, long otherPostId) {
+            return time > otherTime || (time == otherTime && postId > otherPostId);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.MediaObject;
+import com.example.echobackend.repository.MediaObjectRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates the resized variants (MediaObject.Variant) of newly stored images on a small worker
+// pool, off the request and upload threads. Variants are only made for sizes smaller than the
+// original and are stored next to it as JPEG, or PNG when the image has transparency. Animated
+// GIFs are left alone, since a variant would only keep the first frame. If the queue is full the
+// image is skipped and responses keep pointing at the original.
+@Slf4j
+@Service
+public class ImageDerivativeService {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final MediaObjectRepository mediaObjectRepository;
+    private final LocalFileStorage localFileStorage;
+    private final S3Service s3Service;
+    private final MediaUrlResolver mediaUrlResolver;
+    private final TransactionTemplate transaction;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    public ImageDerivativeService(MediaObjectRepository mediaObjectRepository,
+                                  LocalFileStorage localFileStorage,
+                                  S3Service s3Service,
+                                  MediaUrlResolver mediaUrlResolver,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${media.derivatives.threads:2}") int threads,
+                                  @Value("${media.derivatives.queue-capacity:200}") int queueCapacity,
+                                  @Value("${media.derivatives.max-pixels:50000000}") long maxPixels) {
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.localFileStorage = localFileStorage;
+        this.s3Service = s3Service;
+        this.mediaUrlResolver = mediaUrlResolver;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxPixels = maxPixels;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Resizing is CPU bound; let request threads win
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static boolean isImage(String objectKey) {
+        int dot = objectKey.lastIndexOf('.');
+        return dot >= 0 && IMAGE_EXTENSIONS.contains(objectKey.substring(dot).toLowerCase(Locale.ROOT));
+    }
+
+    public void submit(MediaObject media) {
+        if (!isImage(media.getObjectKey())) {
+            return;
+        }
+        try {
+            executor.execute(() -> process(media));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image derivative queue is full, serving {} without resized variants", media.getObjectKey());
+        }
+    }
+
+    public int queuedImages() {
+        return executor.getQueue().size();
+    }
+
+    void process(MediaObject media) {
+        long start = System.currentTimeMillis();
+        try {
+            BufferedImage original = read(media);
+            if (original == null) {
+                return;
+            }
+            boolean alpha = original.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+            media.setVariantFormat(format);
+
+            int variants = 0;
+            List<String> written = new ArrayList<>();
+            BufferedImage source = original;
+            // Largest first, each resized from the previous one, which is both cheaper and smoother
+            MediaObject.Variant[] all = MediaObject.Variant.values();
+            for (int i = all.length - 1; i >= 0; i--) {
+                MediaObject.Variant variant = all[i];
+                if (Math.max(original.getWidth(), original.getHeight()) <= variant.getMaxDimension()) {
+                    continue;
+                }
+                source = resize(source, variant.getMaxDimension(), alpha);
+                String key = media.variantKey(variant);
+                written.add(key);
+                store(media, key, encode(source, format), alpha ? "image/png" : "image/jpeg");
+                variants |= 1 << variant.ordinal();
+            }
+            if (variants == 0) {
+                return;
+            }
+
+            // Recorded under the row lock MediaService.reclaim takes: if the media was reclaimed
+            // while we were resizing, the files just written belong to nobody and are removed
+            int generated = variants;
+            boolean recorded = Boolean.TRUE.equals(transaction.execute(status -> {
+                Optional<MediaObject> locked = mediaObjectRepository.lockByLocation(media.getLocation());
+                locked.ifPresent(current -> mediaObjectRepository.setVariants(current.getId(), generated, format));
+                return locked.isPresent();
+            }));
+            if (!recorded) {
+                for (String key : written) {
+                    delete(media, key);
+                }
+                log.debug("{} was reclaimed while its variants were generated", media.getObjectKey());
+                return;
+            }
+            mediaUrlResolver.invalidate(media.getLocation());
+            log.debug("Generated variants of {} in {} ms", media.getObjectKey(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not generate variants of {}", media.getObjectKey(), e);
+        }
+    }
+
+    // Decodes the original, subsampled while reading when it is far larger than the biggest
+    // variant so huge photos don't need their full size in memory; null if it isn't a usable image
+    private BufferedImage read(MediaObject media) throws IOException {
+        try (InputStream in = open(media);
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                // Only GIFs can be animated here; counting their frames means reading the whole file
+                boolean gif = "gif".equalsIgnoreCase(reader.getFormatName());
+                reader.setInput(input, !gif, true);
+                if (gif && reader.getNumImages(true) > 1) {
+                    log.debug("Not resizing {}: animated", media.getObjectKey());
+                    return null;
+                }
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.info("Not resizing {}: {}x{} is over media.derivatives.max-pixels", media.getObjectKey(), width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int largest = MediaObject.Variant.values()[MediaObject.Variant.values().length - 1].getMaxDimension();
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * largest));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private InputStream open(MediaObject media) throws IOException {
+        return media.getStorage() == MediaObject.Storage.S3
+                ? s3Service.openObject(media.getObjectKey())
+                : localFileStorage.open(media.getObjectKey());
+    }
+
+    private void store(MediaObject media, String key, byte[] bytes, String contentType) throws IOException {
+        if (media.getStorage() == MediaObject.Storage.S3) {
+            s3Service.putBytes(key, bytes, contentType);
+        } else {
+            localFileStorage.write(key, bytes);
+        }
+    }
+
+    private void delete(MediaObject media, String key) {
+        try {
+            if (media.getStorage() == MediaObject.Storage.S3) {
+                s3Service.deleteObject(key);
+            } else {
+                localFileStorage.delete(key);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete variant {} of reclaimed media", key, e);
+        }
+    }
+
+    // Halves the image until the next halving would undershoot, then scales to the target; a single
+    // bilinear step from a much larger image looks noticeably aliased
+    static BufferedImage resize(BufferedImage image, int maxDimension, boolean alpha) {
+        double scale = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Like;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind buffer for likes. Likes are collected in striped in-memory sets, which also drop
+// duplicate (userId, postId) pairs, and written with INSERT IGNORE (one multi-row statement per
+// post) every few milliseconds or as soon as a full batch is waiting. post_stats is bumped in the same
+// transaction as the batch. If a batch fails it is retried post by post: likes the database
+// rejects (their post or user was deleted) are dropped, others are requeued and dropped once they
+// have failed likes.ingestion.max-attempts times. Set likes.ingestion.mode=sync to write every
+// like immediately.
+@Slf4j
+@Service
+public class LikeIngestionService {
+
+    private static final String INSERT_LIKES = "INSERT IGNORE INTO likes (user_id, post_id) VALUES ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsService statsService;
+    private final LikerSetCache likerSetCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${likes.ingestion.mode:buffered}")
+    private String mode;
+
+    @Value("${likes.ingestion.stripes:16}")
+    private int stripeCount;
+
+    @Value("${likes.ingestion.flush-interval-ms:5}")
+    private long flushIntervalMs;
+
+    @Value("${likes.ingestion.batch-size:500}")
+    private int batchSize;
+
+    // Above this many pending likes new ones are written synchronously instead
+    @Value("${likes.ingestion.max-queue-depth:100000}")
+    private int maxQueueDepth;
+
+    // A like whose write fails this many times is dropped rather than retried forever
+    @Value("${likes.ingestion.max-attempts:5}")
+    private int maxAttempts;
+
+    private Stripe[] stripes;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService flusher;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizeSummary;
+    private Counter droppedCounter;
+
+    public LikeIngestionService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                StatsService statsService,
+                                LikerSetCache likerSetCache,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.statsService = statsService;
+        this.likerSetCache = likerSetCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        stripes = new Stripe[Math.max(stripeCount, 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        flushTimer = Timer.builder("likes.ingestion.flush.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("likes.ingestion.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("likes.ingestion.dropped")
+                .register(meterRegistry);
+        Gauge.builder("likes.ingestion.queue.depth", queueDepth, AtomicInteger::get)
+                .register(meterRegistry);
+
+        if (isBuffered()) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "like-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flushQuietly();
+        }
+    }
+
+    public boolean isBuffered() {
+        return "buffered".equalsIgnoreCase(mode);
+    }
+
+    // Returns false if the like could not be buffered and has to be written synchronously
+    public boolean offer(Long userId, Long postId) {
+        if (queueDepth.get() >= maxQueueDepth) {
+            return false;
+        }
+        Like.LikeId key = new Like.LikeId(userId, postId);
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            if (stripe.keys.putIfAbsent(key, 0) == null && queueDepth.incrementAndGet() >= batchSize
+                    && flushScheduled.compareAndSet(false, true)) {
+                flusher.execute(this::flushQuietly);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return true;
+    }
+
+    // Drops a like that has not been written yet. If it was not pending, waits for any flush in
+    // progress so the caller sees the database state including every like it has accepted.
+    public boolean cancel(Long userId, Long postId) {
+        Like.LikeId key = new Like.LikeId(userId, postId);
+        if (removePending(key)) {
+            return true;
+        }
+        // a failed flush puts its likes back, so look again once it is over
+        flushLock.lock();
+        flushLock.unlock();
+        return removePending(key);
+    }
+
+    private boolean removePending(Like.LikeId key) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            if (stripe.keys.remove(key) != null) {
+                queueDepth.decrementAndGet();
+                return true;
+            }
+            return false;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public boolean isPending(Long userId, Long postId) {
+        Like.LikeId key = new Like.LikeId(userId, postId);
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            return stripe.keys.containsKey(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushScheduled.set(false);
+            Map<Like.LikeId, Integer> batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            flushTimer.record(() -> write(batch));
+            batchSizeSummary.record(batch.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Like flush failed", e);
+        }
+    }
+
+    // Pending likes with the number of times writing them has failed
+    private Map<Like.LikeId, Integer> drain() {
+        Map<Like.LikeId, Integer> batch = new HashMap<>(queueDepth.get());
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                batch.putAll(stripe.keys);
+                queueDepth.addAndGet(-stripe.keys.size());
+                stripe.keys.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return batch;
+    }
+
+    // One multi-row INSERT IGNORE per post rather than a JDBC batch: its update count is exactly
+    // the number of new likes for that post, whatever the driver does with batches (with
+    // rewriteBatchedStatements, Connector/J reports SUCCESS_NO_INFO for every batched row).
+    private void write(Map<Like.LikeId, Integer> batch) {
+        Map<Long, List<Long>> likersByPost = new HashMap<>();
+        for (Like.LikeId like : batch.keySet()) {
+            likersByPost.computeIfAbsent(like.getPostId(), id -> new ArrayList<>()).add(like.getUserId());
+        }
+        try {
+            insert(likersByPost);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Writing {} likes failed, retrying post by post", batch.size(), e);
+        }
+
+        // One post that can't be written must not hold back the others. Once a post fails for a
+        // reason other than its own data (the database is unreachable, say), the rest are
+        // requeued without trying them.
+        RuntimeException transientFailure = null;
+        for (Map.Entry<Long, List<Long>> likers : likersByPost.entrySet()) {
+            Long postId = likers.getKey();
+            List<Long> userIds = likers.getValue();
+            if (transientFailure == null) {
+                try {
+                    insert(Map.of(postId, userIds));
+                    continue;
+                } catch (DataIntegrityViolationException e) {
+                    drop(postId, userIds, e);
+                    continue;
+                } catch (RuntimeException e) {
+                    transientFailure = e;
+                }
+            }
+            for (Long userId : userIds) {
+                Like.LikeId key = new Like.LikeId(userId, postId);
+                requeue(key, batch.get(key) + 1, transientFailure);
+            }
+        }
+    }
+
+    private void insert(Map<Long, List<Long>> likersByPost) {
+        transactionTemplate.executeWithoutResult(status -> {
+            likersByPost.forEach((postId, userIds) -> {
+                long inserted = 0;
+                for (int from = 0; from < userIds.size(); from += batchSize) {
+                    inserted += insertLikes(postId, userIds.subList(from, Math.min(from + batchSize, userIds.size())));
+                }
+                if (inserted > 0) {
+                    statsService.onLike(postId, inserted);
+                }
+            });
+            // adding a liker that is already cached is a no-op, so ignored duplicates don't matter
+            TransactionHooks.afterCommit(() -> likersByPost.forEach((postId, userIds) ->
+                    userIds.forEach(userId -> likerSetCache.add(postId, userId))));
+        });
+    }
+
+    private int insertLikes(Long postId, List<Long> userIds) {
+        StringBuilder sql = new StringBuilder(INSERT_LIKES);
+        Object[] args = new Object[userIds.size() * 2];
+        for (int i = 0; i < userIds.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+            args[2 * i] = userIds.get(i);
+            args[2 * i + 1] = postId;
+        }
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private void drop(Long postId, List<Long> userIds, RuntimeException cause) {
+        droppedCounter.increment(userIds.size());
+        log.error("Dropping {} likes of post {} by users {}", userIds.size(), postId, userIds, cause);
+    }
+
+    private void requeue(Like.LikeId key, int failures, RuntimeException cause) {
+        if (failures >= maxAttempts) {
+            droppedCounter.increment();
+            log.error("Dropping like of post {} by user {} after {} failed writes",
+                    key.getPostId(), key.getUserId(), failures, cause);
+            return;
+        }
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            // the user may have liked the post again since it was drained
+            Integer pending = stripe.keys.put(key, failures);
+            if (pending == null) {
+                queueDepth.incrementAndGet();
+            } else if (pending > failures) {
+                stripe.keys.put(key, pending);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(Like.LikeId key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    // A ReentrantLock rather than a monitor so a virtual thread waiting on a busy stripe unmounts
+    // instead of pinning its carrier
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        // pending likes with the number of failed writes of each
+        final Map<Like.LikeId, Integer> keys = new HashMap<>();
+    }
+}
@@ -1,43 +1,84 @@
 package com.example.echobackend.service;
 
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.dto.LikeRequest;
+import com.example.echobackend.dto.LikeSummaryResponse;
+import com.example.echobackend.metrics.EntryPoint;
 import com.example.echobackend.model.Like;
-import com.example.echobackend.model.User;
 import com.example.echobackend.repository.LikeRepository;
-import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.repository.PostRepository;
+import com.example.echobackend.security.CurrentUserResolver;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class LikeService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     private final LikeRepository likeRepository;
-    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CurrentUserResolver currentUserResolver;
+    private final StatsService statsService;
+    private final LikeIngestionService likeIngestionService;
+    private final LikerSetCache likerSetCache;
+
+    // Ids of users who liked the post, in user id order
+    public CursorPage<Long> getLikesForPost(Long postId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit, DEFAULT_PAGE_SIZE);
+        long[] likers = likerSetCache.get(postId);
+
+        int start = after == null ? 0 : Arrays.binarySearch(likers, after.getId());
+        if (start < 0) {
+            start = -start - 1;
+        } else if (after != null) {
+            start++;
+        }
+        int end = Math.min(likers.length, start + pageSize);
+
+        List<Long> items = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            items.add(likers[i]);
+        }
+        String nextCursor = end < likers.length ? PageCursor.of(likers[end - 1]).encode() : null;
+        return new CursorPage<>(items, nextCursor);
+    }
 
-    public List<Long> getLikesForPost(Long postId) {
-        return likeRepository.findByPostId(postId)
-                .stream()
-                .map(Like::getUserId)
-                .collect(Collectors.toList());
+    public LikeSummaryResponse getLikeSummary(Long postId) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
+
+        long[] likers = likerSetCache.get(postId);
+        boolean likedByMe = Arrays.binarySearch(likers, currentUserId) >= 0;
+        long likeCount = likers.length;
+        if (!likedByMe && likeIngestionService.isBuffered() && likeIngestionService.isPending(currentUserId, postId)) {
+            // show the caller their own like before it has been flushed
+            likedByMe = true;
+            likeCount++;
+        }
+        return new LikeSummaryResponse(postId, likeCount, likedByMe);
     }
 
+    @Transactional
     public String addLike(LikeRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
+        Long currentUserId = currentUserResolver.getCurrentUserId();
+
+        // Checked up front so a like of a missing post is rejected here instead of failing its flush
+        if (!postRepository.existsById(request.getPostId())) {
+            throw new IllegalArgumentException("Post not found.");
         }
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+        // Buffered likes skip the duplicate check; duplicates are dropped in memory and by INSERT IGNORE
+        if (likeIngestionService.isBuffered() && likeIngestionService.offer(currentUserId, request.getPostId())) {
+            return "Post has been liked.";
+        }
 
         if (likeRepository.findByUserIdAndPostId(currentUserId, request.getPostId()).isPresent()) {
             return "Post already liked."; // Or throw error
@@ -45,26 +86,26 @@ public class LikeService {
 
         Like newLike = new Like(currentUserId, request.getPostId());
         likeRepository.save(newLike);
+        statsService.onLike(request.getPostId(), 1);
+        TransactionHooks.afterCommit(() -> likerSetCache.add(request.getPostId(), currentUserId));
         return "Post has been liked.";
     }
 
     @Transactional
     public String deleteLike(Long postId) { // postId of the post to unlike
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
-        }
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+        if (likeIngestionService.isBuffered() && likeIngestionService.cancel(currentUserId, postId)) {
+            return "Post has been disliked.";
+        }
 
         if (!likeRepository.findByUserIdAndPostId(currentUserId, postId).isPresent()) {
             throw new RuntimeException("You have not liked this post.");
         }
 
         likeRepository.deleteByUserIdAndPostId(currentUserId, postId);
+        statsService.onLike(postId, -1);
+        TransactionHooks.afterCommit(() -> likerSetCache.remove(postId, currentUserId));
         return "Post has been disliked.";
     }
 }
\ No newline at end of file
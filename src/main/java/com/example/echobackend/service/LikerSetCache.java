@@ -0,0 +1,91 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.LikeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Who liked a post, kept per post as a sorted long[] of user ids (8 bytes per like instead of a
+// Like entity plus a boxed Long). Posts are cached up to likes.liker-cache.max-size of ids in
+// total, so a few viral posts can't pin unbounded memory; the rest are loaded with a single
+// id-only query on demand.
+@Component
+public class LikerSetCache {
+
+    private final LikeRepository likeRepository;
+    private final Cache<Long, long[]> likers;
+    private final CacheLoadGuard<Long> loadGuard = new CacheLoadGuard<>();
+
+    public LikerSetCache(LikeRepository likeRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${likes.liker-cache.max-size:64MB}") DataSize maxSize) {
+        this.likeRepository = likeRepository;
+        this.likers = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long postId, long[] ids) -> ids.length * Long.BYTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, likers, "liker-sets");
+    }
+
+    // The returned array is a shared snapshot and must not be modified
+    public long[] get(Long postId) {
+        long[] cached = likers.getIfPresent(postId);
+        if (cached != null) {
+            return cached;
+        }
+        return loadGuard.load(postId, () -> {
+            List<Long> userIds = likeRepository.findUserIdsByPostId(postId);
+            long[] loaded = new long[userIds.size()];
+            for (int i = 0; i < loaded.length; i++) {
+                loaded[i] = userIds.get(i);
+            }
+            return loaded;
+        }, loaded -> likers.put(postId, loaded));
+    }
+
+    public boolean contains(Long postId, Long userId) {
+        return Arrays.binarySearch(get(postId), userId) >= 0;
+    }
+
+    public void add(Long postId, Long userId) {
+        loadGuard.write(postId, () -> update(postId, ids -> {
+            int pos = Arrays.binarySearch(ids, userId);
+            if (pos >= 0) {
+                return ids;
+            }
+            pos = -pos - 1;
+            long[] result = new long[ids.length + 1];
+            System.arraycopy(ids, 0, result, 0, pos);
+            result[pos] = userId;
+            System.arraycopy(ids, pos, result, pos + 1, ids.length - pos);
+            return result;
+        }));
+    }
+
+    public void remove(Long postId, Long userId) {
+        loadGuard.write(postId, () -> update(postId, ids -> {
+            int pos = Arrays.binarySearch(ids, userId);
+            if (pos < 0) {
+                return ids;
+            }
+            long[] result = new long[ids.length - 1];
+            System.arraycopy(ids, 0, result, 0, pos);
+            System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+            return result;
+        }));
+    }
+
+    // Posts that are not cached are left alone; they are loaded with the change on their next read
+    private void update(Long postId, UnaryOperator<long[]> change) {
+        likers.asMap().computeIfPresent(postId, (id, ids) -> change.apply(ids));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.echobackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Writes uploads into file.upload-dir. The body is transferred channel to channel into a
+// temporary file, which MediaService then renames to its content-addressed name or discards if
+// the same bytes are already stored, so a failed or oversized upload never leaves a partial file
+// under a final name.
+@Component
+public class LocalFileStorage {
+
+    private static final long TRANSFER_CHUNK = 1L << 20;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    // Returns the temporary file holding the body
+    public Path storeTemporary(InputStream body) throws IOException {
+        Path dir = directory();
+        Files.createDirectories(dir);
+
+        Path temp = Files.createTempFile(dir, "upload-", ".part");
+        boolean stored = false;
+        try {
+            long size = 0;
+            try (ReadableByteChannel source = Channels.newChannel(body);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long n;
+                while ((n = target.transferFrom(source, size, TRANSFER_CHUNK)) > 0) {
+                    size += n;
+                }
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("Please select a file to upload.");
+            }
+            stored = true;
+            return temp;
+        } finally {
+            if (!stored) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    public void promote(Path temp, String filename) throws IOException {
+        Files.move(temp, directory().resolve(filename), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void discard(Path temp) throws IOException {
+        Files.deleteIfExists(temp);
+    }
+
+    public InputStream open(String filename) throws IOException {
+        return Files.newInputStream(directory().resolve(filename));
+    }
+
+    public void write(String filename, byte[] bytes) throws IOException {
+        Files.write(directory().resolve(filename), bytes);
+    }
+
+    public void delete(String filename) throws IOException {
+        Files.deleteIfExists(directory().resolve(filename));
+    }
+
+    private Path directory() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.MediaObject;
+import com.example.echobackend.repository.MediaObjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Content-addressed media: every upload is staged under a temporary name while its SHA-256 is
+// computed, then either promoted to <hash><ext> or dropped because the same bytes are already
+// stored. Posts, stories and profiles retain/release the location they point at; media nobody
+// references is deleted once it hasn't been uploaded again for media.orphan-grace, which also
+// covers the gap between uploading a file and creating the post that uses it.
+@Slf4j
+@Service
+public class MediaService {
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final MediaObjectRepository mediaObjectRepository;
+    private final LocalFileStorage localFileStorage;
+    private final S3Service s3Service;
+    private final ImageDerivativeService imageDerivativeService;
+    private final MediaUrlResolver mediaUrlResolver;
+    private final TransactionTemplate transaction;
+    private final Duration orphanGrace;
+
+    public MediaService(MediaObjectRepository mediaObjectRepository,
+                        LocalFileStorage localFileStorage,
+                        S3Service s3Service,
+                        ImageDerivativeService imageDerivativeService,
+                        MediaUrlResolver mediaUrlResolver,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${media.orphan-grace:24h}") Duration orphanGrace) {
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.localFileStorage = localFileStorage;
+        this.s3Service = s3Service;
+        this.imageDerivativeService = imageDerivativeService;
+        this.mediaUrlResolver = mediaUrlResolver;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.orphanGrace = orphanGrace;
+    }
+
+    // Location of already stored content, for clients that send the hash up front and can skip
+    // sending the body; counts as a fresh upload for the orphan grace period
+    public Optional<String> findExisting(MediaObject.Storage storage, String contentHash) {
+        return transaction.execute(status -> mediaObjectRepository.lockByContentHash(contentHash, storage)
+                .map(media -> {
+                    media.setLastUploadedAt(now());
+                    return media.getLocation();
+                }));
+    }
+
+    // tempRef is the staged file (LOCAL) or object key (S3); returns the location to store in posts.
+    // Newly stored images get their resized variants generated in the background.
+    public String commit(MediaObject.Storage storage, String tempRef, String contentHash, long size, String extension) {
+        Committed committed;
+        try {
+            committed = transaction.execute(status -> commitOnce(storage, tempRef, contentHash, size, extension));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent upload of the same bytes inserted first; its row is visible now
+            committed = transaction.execute(status -> commitOnce(storage, tempRef, contentHash, size, extension));
+        }
+        if (committed.created()) {
+            imageDerivativeService.submit(committed.media());
+        }
+        return committed.media().getLocation();
+    }
+
+    // Reference counts only change for managed media; other locations are ignored
+    public void retain(String location) {
+        if (location != null && !location.isBlank()) {
+            mediaObjectRepository.retain(location);
+        }
+    }
+
+    // Bulk form of retain for many (possibly repeated) locations: one lookup per 1000 distinct
+    // locations finds the managed ones, then each of those gets a single update
+    public void retainAll(Collection<String> locations) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String location : locations) {
+            if (location != null && !location.isBlank()) {
+                counts.merge(location, 1, Integer::sum);
+            }
+        }
+        List<String> distinct = new ArrayList<>(counts.keySet());
+        for (int from = 0; from < distinct.size(); from += 1000) {
+            List<String> chunk = distinct.subList(from, Math.min(from + 1000, distinct.size()));
+            for (String location : mediaObjectRepository.findManagedLocations(chunk)) {
+                mediaObjectRepository.retain(location, counts.get(location));
+            }
+        }
+    }
+
+    // Once the surrounding transaction commits, media left without references is reclaimed
+    public void release(String location) {
+        if (location != null && !location.isBlank() && mediaObjectRepository.release(location) > 0) {
+            TransactionHooks.afterCommit(() -> reclaim(location));
+        }
+    }
+
+    // Deletes the stored bytes and the row if nothing references them and the grace period has
+    // passed. The blob is deleted while the row is locked, so an upload of the same content waits
+    // and then stores a fresh copy instead of pointing at a deleted one.
+    public boolean reclaim(String location) {
+        try {
+            boolean reclaimed = Boolean.TRUE.equals(transaction.execute(status -> {
+                Optional<MediaObject> locked = mediaObjectRepository.lockByLocation(location);
+                if (locked.isEmpty() || locked.get().getRefCount() > 0
+                        || !locked.get().getLastUploadedAt().before(graceCutoff())) {
+                    return false;
+                }
+                MediaObject media = locked.get();
+                for (MediaObject.Variant variant : MediaObject.Variant.values()) {
+                    if (media.hasVariant(variant)) {
+                        deleteStored(media.getStorage(), media.variantKey(variant));
+                    }
+                }
+                deleteStored(media.getStorage(), media.getObjectKey());
+                mediaObjectRepository.delete(media);
+                return true;
+            }));
+            if (reclaimed) {
+                mediaUrlResolver.invalidate(location);
+            }
+            return reclaimed;
+        } catch (RuntimeException e) {
+            // The sweep tries again later
+            log.warn("Could not reclaim media {}", location, e);
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.sweep.interval-ms:3600000}",
+               initialDelayString = "${media.sweep.initial-delay-ms:300000}")
+    public void sweepOrphans() {
+        int reclaimed = 0;
+        List<String> batch;
+        do {
+            batch = mediaObjectRepository.findOrphanedLocations(graceCutoff(), PageRequest.of(0, SWEEP_BATCH_SIZE));
+            int before = reclaimed;
+            for (String location : batch) {
+                if (reclaim(location)) {
+                    reclaimed++;
+                }
+            }
+            if (reclaimed == before) {
+                // Nothing in this batch could be reclaimed; stop instead of reading it again
+                break;
+            }
+        } while (batch.size() == SWEEP_BATCH_SIZE);
+
+        if (reclaimed > 0) {
+            log.info("Reclaimed {} unreferenced media objects", reclaimed);
+        }
+    }
+
+    private Committed commitOnce(MediaObject.Storage storage, String tempRef, String contentHash, long size, String extension) {
+        Optional<MediaObject> existing = mediaObjectRepository.lockByContentHash(contentHash, storage);
+        if (existing.isPresent()) {
+            MediaObject media = existing.get();
+            media.setLastUploadedAt(now());
+            discardStaged(storage, tempRef);
+            return new Committed(media, false);
+        }
+
+        String objectKey = contentHash + extension;
+        promoteStaged(storage, tempRef, objectKey);
+        String location = storage == MediaObject.Storage.S3 ? s3Service.objectUrl(objectKey) : objectKey;
+        MediaObject media = mediaObjectRepository.saveAndFlush(
+                new MediaObject(null, contentHash, storage, objectKey, location, size, 0, now(), 0, null));
+        return new Committed(media, true);
+    }
+
+    private void promoteStaged(MediaObject.Storage storage, String tempRef, String objectKey) {
+        if (storage == MediaObject.Storage.S3) {
+            s3Service.copyObject(tempRef, objectKey);
+            s3Service.deleteObject(tempRef);
+            return;
+        }
+        try {
+            localFileStorage.promote(Path.of(tempRef), objectKey);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store file: " + e.getMessage(), e);
+        }
+    }
+
+    // Best effort; a leftover staged file or object does not affect anything that was committed
+    public void discardStaged(MediaObject.Storage storage, String tempRef) {
+        try {
+            if (storage == MediaObject.Storage.S3) {
+                s3Service.deleteObject(tempRef);
+            } else {
+                localFileStorage.discard(Path.of(tempRef));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not remove staged upload {}", tempRef, e);
+        }
+    }
+
+    private void deleteStored(MediaObject.Storage storage, String objectKey) {
+        if (storage == MediaObject.Storage.S3) {
+            s3Service.deleteObject(objectKey);
+            return;
+        }
+        try {
+            localFileStorage.delete(objectKey);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete file: " + e.getMessage(), e);
+        }
+    }
+
+    private Timestamp graceCutoff() {
+        return new Timestamp(System.currentTimeMillis() - orphanGrace.toMillis());
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    private record Committed(MediaObject media, boolean created) {
+    }
+}
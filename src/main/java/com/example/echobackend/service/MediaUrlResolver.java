@@ -0,0 +1,108 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.MediaObject;
+import com.example.echobackend.repository.MediaObjectRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Maps stored image locations to the location of a resized variant for response DTOs. Looks up a
+// whole page of locations with one query and caches the result per location, including "no
+// variants" for external URLs and files from before content addressing.
+@Component
+public class MediaUrlResolver {
+
+    private static final Map<MediaObject.Variant, String> NONE = Map.of();
+
+    private final MediaObjectRepository mediaObjectRepository;
+    private final S3Service s3Service;
+    private final Cache<String, Map<MediaObject.Variant, String>> variantsByLocation;
+
+    public MediaUrlResolver(MediaObjectRepository mediaObjectRepository,
+                            S3Service s3Service,
+                            MeterRegistry meterRegistry,
+                            @Value("${media.variants.cache.max-size:100000}") long maxSize) {
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.s3Service = s3Service;
+        this.variantsByLocation = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, variantsByLocation, "media-variants");
+    }
+
+    public Resolved resolve(Collection<String> locations) {
+        Set<String> keys = new HashSet<>();
+        for (String location : locations) {
+            if (location != null && !location.isBlank()) {
+                keys.add(location);
+            }
+        }
+        if (keys.isEmpty()) {
+            return new Resolved(Map.of());
+        }
+        return new Resolved(variantsByLocation.getAll(keys, this::load));
+    }
+
+    // Called when variants are added or the media is deleted
+    public void invalidate(String location) {
+        variantsByLocation.invalidate(location);
+    }
+
+    public String variantLocation(MediaObject media, MediaObject.Variant variant) {
+        String key = media.variantKey(variant);
+        return media.getStorage() == MediaObject.Storage.S3 ? s3Service.objectUrl(key) : key;
+    }
+
+    private Map<String, Map<MediaObject.Variant, String>> load(Set<? extends String> locations) {
+        Map<String, Map<MediaObject.Variant, String>> result = new HashMap<>();
+        for (MediaObject media : mediaObjectRepository.findByLocationIn(Set.copyOf(locations))) {
+            Map<MediaObject.Variant, String> variants = new EnumMap<>(MediaObject.Variant.class);
+            for (MediaObject.Variant variant : MediaObject.Variant.values()) {
+                if (media.hasVariant(variant)) {
+                    variants.put(variant, variantLocation(media, variant));
+                }
+            }
+            result.put(media.getLocation(), variants.isEmpty() ? NONE : variants);
+        }
+        for (String location : locations) {
+            result.putIfAbsent(location, NONE);
+        }
+        return result;
+    }
+
+    public static final class Resolved {
+        private final Map<String, Map<MediaObject.Variant, String>> variants;
+
+        private Resolved(Map<String, Map<MediaObject.Variant, String>> variants) {
+            this.variants = variants;
+        }
+
+        // The requested variant or, when there is none (image smaller than the variant, still
+        // processing, not managed media), the smallest larger one, falling back to the original
+        public String url(String location, MediaObject.Variant variant) {
+            Map<MediaObject.Variant, String> available = location != null ? variants.get(location) : null;
+            if (available == null || available.isEmpty()) {
+                return location;
+            }
+            MediaObject.Variant[] all = MediaObject.Variant.values();
+            for (int i = variant.ordinal(); i < all.length; i++) {
+                String url = available.get(all[i]);
+                if (url != null) {
+                    return url;
+                }
+            }
+            return location;
+        }
+    }
+}
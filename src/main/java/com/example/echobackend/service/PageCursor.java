@@ -0,0 +1,81 @@
+package com.example.echobackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Opaque keyset cursor handed out as "nextCursor". It points at the last item of a page
+// (createdAt + id, or just id for lists without a timestamp); the next page starts after it.
+public final class PageCursor {
+
+    public static final int MAX_LIMIT = 100;
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    private PageCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static PageCursor of(LocalDateTime createdAt, Long id) {
+        return new PageCursor(createdAt, id);
+    }
+
+    public static PageCursor of(Timestamp createdAt, Long id) {
+        return new PageCursor(createdAt.toLocalDateTime(), id);
+    }
+
+    public static PageCursor of(Long id) {
+        return new PageCursor(null, id);
+    }
+
+    // Returns null for the first page (no cursor supplied)
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            LocalDateTime createdAt = separator == 0 ? null : LocalDateTime.parse(raw.substring(0, separator));
+            return new PageCursor(createdAt, Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public static int clampLimit(Integer limit, int defaultLimit) {
+        if (limit == null || limit <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    public String encode() {
+        String raw = (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() {
+        if (createdAt == null) {
+            // an id-only cursor was passed to a time-ordered list
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        return createdAt;
+    }
+
+    public Timestamp getCreatedAtTimestamp() {
+        return Timestamp.valueOf(getCreatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.echobackend.service;
 
 import com.example.echobackend.dto.AddPostRequest;
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.dto.PostResponse;
+import com.example.echobackend.metrics.EntryPoint;
+import com.example.echobackend.model.MediaObject;
 import com.example.echobackend.model.Post;
-import com.example.echobackend.model.User;
+import com.example.echobackend.model.PostStats;
+import com.example.echobackend.repository.LikeRepository;
 import com.example.echobackend.repository.PostRepository;
 import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -19,90 +30,206 @@ import java.util.Map;
 import java.util.function.Function;
 
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class PostService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final RelationshipService relationshipService;
+    private final HomeTimelineStore homeTimelineStore;
+    private final StatsService statsService;
+    private final LikeRepository likeRepository;
+    private final LikeIngestionService likeIngestionService;
+    private final MediaService mediaService;
+    private final MediaUrlResolver mediaUrlResolver;
 
-    public List<PostResponse> getPosts(Long targetUserId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not authenticated!");
-        }
+    // Authors with at least this many followers are not fanned out on write; their posts are
+    // merged into the feed at read time instead.
+    @Value("${feed.fanout.celebrity-threshold:10000}")
+    private long celebrityThreshold;
+
+    public CursorPage<PostResponse> getPosts(Long targetUserId, String cursor, Integer limit) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit, DEFAULT_PAGE_SIZE);
 
         List<Post> posts;
+        boolean hasNext;
         if (targetUserId != null) {
-            posts = postRepository.findByUser_IdOrderByCreatedAtDesc(targetUserId);
+            Slice<Post> slice = after == null
+                    ? postRepository.findPageByUserId(targetUserId, PageRequest.of(0, pageSize))
+                    : postRepository.findPageByUserIdBefore(targetUserId, after.getCreatedAt(), after.getId(), PageRequest.of(0, pageSize));
+            posts = slice.getContent();
+            hasNext = slice.hasNext();
         } else {
-            List<Long> followedUserIds = relationshipService.getFollowedUserIds(currentUser.getId());
-            followedUserIds.add(currentUser.getId());
-            posts = postRepository.findByUser_IdInOrderByCreatedAtDesc(followedUserIds);
+            List<Post> timeline = getHomeTimeline(currentUserId, after, pageSize + 1);
+            hasNext = timeline.size() > pageSize;
+            posts = hasNext ? timeline.subList(0, pageSize) : timeline;
         }
 
-        Set<Long> userIdsInPosts = posts.stream()
-                                         .map(post -> post.getUser().getId())
-                                         .collect(Collectors.toSet());
-        Map<Long, User> usersMap = userRepository.findAllById(userIdsInPosts)
-                .stream()
-                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<PostResponse> items = toPostResponses(posts, currentUserId);
 
-        return posts.stream().map(post -> {
-            User postUser = usersMap.get(post.getUser().getId());
-            return new PostResponse(
-                post.getId(),
-                post.getDescription(),
-                post.getImg(),
-                post.getCreatedAt(),
-                post.getUser().getId(),
-                postUser != null ? postUser.getName() : null,
-                postUser != null ? postUser.getProfilePic() : null
-            );
-        }).collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasNext) {
+            Post last = posts.get(posts.size() - 1);
+            nextCursor = PageCursor.of(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
     }
 
+    @Transactional
     public String addPost(AddPostRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
-        }
-
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-
         Post newPost = new Post();
         newPost.setDescription(request.getDescription());
         newPost.setImg(request.getImg());
-        newPost.setUser(currentUser);
+        newPost.setUser(currentUserResolver.getCurrentUserReference());
 
-        postRepository.save(newPost);
+        Post savedPost = postRepository.save(newPost);
+        statsService.createPostStats(savedPost.getId());
+        mediaService.retain(savedPost.getImg());
+        TransactionHooks.afterCommit(() -> fanOut(savedPost));
         return "Post has been created.";
     }
 
+    @Transactional
     public String deletePost(Long postId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
-        }
-
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
         Post postToDelete = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found!"));
 
-        if (!postToDelete.getUser().getId().equals(currentUser.getId())) {
+        if (!postToDelete.getUser().getId().equals(currentUserId)) {
             throw new RuntimeException("You can delete only your post!");
         }
 
         postRepository.delete(postToDelete);
+        mediaService.release(postToDelete.getImg());
+        statsService.deletePostStats(postId);
+        TransactionHooks.afterCommit(() -> removeFromTimelines(postToDelete));
         return "Post has been deleted.";
     }
+
+    // Builds the feed read model for a page of posts with a fixed number of queries regardless of
+    // page size: one for the counters, one for the caller's likes, one for the authors and (for
+    // images not in MediaUrlResolver's cache) one for the resized variants.
+    private List<PostResponse> toPostResponses(List<Post> posts, Long currentUserId) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        Set<Long> authorIds = posts.stream()
+                                   .map(post -> post.getUser().getId())
+                                   .collect(Collectors.toSet());
+
+        Map<Long, PostStats> stats = statsService.getPostStats(postIds);
+        Set<Long> likedPostIds = new HashSet<>(likeRepository.findLikedPostIds(currentUserId, postIds));
+        Map<Long, Object[]> authors = userRepository.findAuthorsByIds(authorIds)
+                .stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+        List<String> mediaLocations = new ArrayList<>();
+        posts.forEach(post -> mediaLocations.add(post.getImg()));
+        authors.values().forEach(author -> mediaLocations.add((String) author[2]));
+        MediaUrlResolver.Resolved media = mediaUrlResolver.resolve(mediaLocations);
+
+        return posts.stream().map(post -> {
+            Long authorId = post.getUser().getId();
+            Object[] author = authors.get(authorId);
+            PostStats postStats = stats.get(post.getId());
+            long likeCount = postStats != null ? postStats.getLikeCount() : 0;
+            boolean likedByMe = likedPostIds.contains(post.getId());
+            if (!likedByMe && likeIngestionService.isBuffered() && likeIngestionService.isPending(currentUserId, post.getId())) {
+                // the caller's own like is still in the write-behind buffer
+                likedByMe = true;
+                likeCount++;
+            }
+            return new PostResponse(
+                post.getId(),
+                post.getDescription(),
+                media.url(post.getImg(), MediaObject.Variant.FEED),
+                media.url(post.getImg(), MediaObject.Variant.FULL),
+                post.getCreatedAt(),
+                authorId,
+                author != null ? (String) author[1] : null,
+                author != null ? media.url((String) author[2], MediaObject.Variant.AVATAR) : null,
+                likeCount,
+                postStats != null ? postStats.getCommentCount() : 0,
+                likedByMe
+            );
+        }).collect(Collectors.toList());
+    }
+
+    // The home feed only reaches back as far as the materialized timeline (feed.timeline.capacity)
+    private List<Post> getHomeTimeline(Long currentUserId, PageCursor after, int fetchSize) {
+        // The followed ids are only needed to build a missing timeline and to merge in celebrities
+        List<Long> followedUserIds = homeTimelineStore.hasCelebrities()
+                ? relationshipService.getFollowedUserIds(currentUserId)
+                : null;
+
+        Map<Long, Post> postsById = new LinkedHashMap<>();
+        List<Long> timeline = homeTimelineStore.newest(currentUserId, after, fetchSize, () -> {
+            List<Long> authorIds = new ArrayList<>(followedUserIds != null
+                    ? followedUserIds
+                    : relationshipService.getFollowedUserIds(currentUserId));
+            authorIds.add(currentUserId);
+            return postRepository.findByUser_IdInOrderByCreatedAtDesc(authorIds, PageRequest.of(0, homeTimelineStore.getCapacity()));
+        });
+        postRepository.findAllById(timeline).forEach(post -> postsById.put(post.getId(), post));
+
+        // Fan-out-on-read for followed authors that are too big to fan out on write
+        List<Long> celebrityIds = followedUserIds != null ? homeTimelineStore.celebritiesAmong(followedUserIds) : List.of();
+        if (!celebrityIds.isEmpty()) {
+            List<Post> celebrityPosts = after == null
+                    ? postRepository.findByUser_IdInOrderByCreatedAtDesc(celebrityIds, PageRequest.of(0, fetchSize))
+                    : postRepository.findPageByUserIdInBefore(celebrityIds, after.getCreatedAt(), after.getId(),
+                            PageRequest.of(0, fetchSize)).getContent();
+            celebrityPosts.forEach(post -> postsById.putIfAbsent(post.getId(), post));
+        }
+
+        Comparator<Post> newestFirst = Comparator.comparing(Post::getCreatedAt).thenComparing(Post::getId).reversed();
+        return postsById.values().stream()
+                .filter(post -> after == null || isBefore(post, after))
+                .sorted(newestFirst)
+                .limit(fetchSize)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isBefore(Post post, PageCursor cursor) {
+        int byTime = post.getCreatedAt().compareTo(cursor.getCreatedAt());
+        return byTime < 0 || (byTime == 0 && post.getId() < cursor.getId());
+    }
+
+    private void fanOut(Post post) {
+        Long authorId = post.getUser().getId();
+        homeTimelineStore.push(authorId, post);
+
+        if (homeTimelineStore.isCelebrity(authorId)
+                || relationshipService.getFollowerCount(authorId) >= celebrityThreshold) {
+            homeTimelineStore.markCelebrity(authorId);
+            return;
+        }
+
+        for (Long followerId : relationshipService.getFollowerUserIdsForUser(authorId)) {
+            homeTimelineStore.push(followerId, post);
+        }
+    }
+
+    private void removeFromTimelines(Post post) {
+        Long authorId = post.getUser().getId();
+        if (homeTimelineStore.isCelebrity(authorId)) {
+            // Celebrity posts can still sit in timelines that were materialized from the database
+            homeTimelineStore.removeEverywhere(post.getId());
+            return;
+        }
+
+        homeTimelineStore.remove(authorId, post.getId());
+        for (Long followerId : relationshipService.getFollowerUserIdsForUser(authorId)) {
+            homeTimelineStore.remove(followerId, post.getId());
+        }
+    }
 }
\ No newline at end of file
@@ -1,28 +1,47 @@
 package com.example.echobackend.service;
 
+import com.example.echobackend.metrics.EntryPoint;
 import com.example.echobackend.model.Relationship;
 import com.example.echobackend.model.User;
+import com.example.echobackend.model.UserStats;
 import com.example.echobackend.repository.RelationshipRepository;
 import com.example.echobackend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.HashSet;
+import java.util.Map;
 
+import com.example.echobackend.dto.CursorPage;
 import com.example.echobackend.dto.UserDTO;
 
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class RelationshipService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     private final RelationshipRepository relationshipRepository;
     private final UserRepository userRepository;
+    private final HomeTimelineStore homeTimelineStore;
+    private final FollowGraph followGraph;
+    private final StatsService statsService;
 
     public List<Long> getFollowerUserIdsForUser(Long followedUserId) {
+        if (followGraph.isReady()) {
+            return toList(followGraph.getFollowers(followedUserId));
+        }
         List<Relationship> relationships = relationshipRepository.findByFollowedUserId(followedUserId);
         return relationships.stream()
                 .map(Relationship::getFollowerUserId)
@@ -30,6 +49,9 @@ public class RelationshipService {
     }
 
     public List<Long> getFollowedUserIds(Long followerUserId) {
+        if (followGraph.isReady()) {
+            return toList(followGraph.getFollowing(followerUserId));
+        }
         return relationshipRepository.findByFollowerUserId(followerUserId)
                 .stream()
                 .map(Relationship::getFollowedUserId)
@@ -46,12 +68,18 @@ public class RelationshipService {
             throw new RuntimeException("Cannot follow yourself!");
         }
 
-        if (relationshipRepository.existsByFollowerUserIdAndFollowedUserId(followerUserId, followedUserId)) {
+        if (isFollowing(followerUserId, followedUserId)) {
             return "Already following.";
         }
 
         Relationship newRelationship = new Relationship(followerUserId, followedUserId);
         relationshipRepository.save(newRelationship);
+        statsService.onFollow(followerUserId, followedUserId, 1);
+        TransactionHooks.afterCommit(() -> {
+            followGraph.addEdge(followerUserId, followedUserId);
+            // Rebuilt on the next feed read so the new author's recent posts show up
+            homeTimelineStore.evict(followerUserId);
+        });
         return "Following";
     }
 
@@ -61,11 +89,16 @@ public class RelationshipService {
             throw new RuntimeException("Follower ID cannot be null.");
         }
 
-        if (!relationshipRepository.existsByFollowerUserIdAndFollowedUserId(followerUserId, followedUserId)) {
+        if (!isFollowing(followerUserId, followedUserId)) {
             throw new RuntimeException("Not following this user.");
         }
 
         relationshipRepository.deleteByFollowerUserIdAndFollowedUserId(followerUserId, followedUserId);
+        statsService.onFollow(followerUserId, followedUserId, -1);
+        TransactionHooks.afterCommit(() -> {
+            followGraph.removeEdge(followerUserId, followedUserId);
+            homeTimelineStore.removeAuthor(followerUserId, followedUserId);
+        });
         return "Unfollow";
     }
 
@@ -73,23 +106,51 @@ public class RelationshipService {
         if (currentUserId == null) {
             return false;
         }
+        if (followGraph.isReady()) {
+            return followGraph.isFollowing(currentUserId, followedUserId);
+        }
         return relationshipRepository.existsByFollowerUserIdAndFollowedUserId(currentUserId, followedUserId);
     }
 
-    public List<User> getFollowersList(Long userId) {
-        List<Relationship> relationships = relationshipRepository.findByFollowedUserId(userId);
-        Set<Long> followerUserIds = relationships.stream()
-                .map(Relationship::getFollowerUserId)
-                .collect(Collectors.toSet());
-        return userRepository.findAllById(followerUserIds);
+    public CursorPage<User> getFollowersList(Long userId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit, DEFAULT_PAGE_SIZE);
+        long afterUserId = after != null ? after.getId() : 0L;
+        Slice<Long> followerUserIds = followGraph.isReady()
+                ? pageOf(followGraph.getFollowers(userId), afterUserId, pageSize)
+                : relationshipRepository.findFollowerIdsPage(userId, afterUserId, PageRequest.of(0, pageSize));
+        return toUserPage(followerUserIds);
     }
 
-    public List<User> getFollowingList(Long userId) {
-        List<Relationship> relationships = relationshipRepository.findByFollowerUserId(userId);
-        Set<Long> followedUserIds = relationships.stream()
-                .map(Relationship::getFollowedUserId)
-                .collect(Collectors.toSet());
-        return userRepository.findAllById(followedUserIds);
+    public CursorPage<User> getFollowingList(Long userId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit, DEFAULT_PAGE_SIZE);
+        long afterUserId = after != null ? after.getId() : 0L;
+        Slice<Long> followedUserIds = followGraph.isReady()
+                ? pageOf(followGraph.getFollowing(userId), afterUserId, pageSize)
+                : relationshipRepository.findFollowedIdsPage(userId, afterUserId, PageRequest.of(0, pageSize));
+        return toUserPage(followedUserIds);
+    }
+
+    // Same keyset semantics as the repository queries, served from a sorted adjacency array
+    private static Slice<Long> pageOf(long[] sortedIds, long afterUserId, int pageSize) {
+        int start = Arrays.binarySearch(sortedIds, afterUserId);
+        start = start >= 0 ? start + 1 : -start - 1;
+        int end = Math.min(sortedIds.length, start + pageSize);
+        List<Long> content = toList(Arrays.copyOfRange(sortedIds, start, end));
+        return new SliceImpl<>(content, PageRequest.of(0, pageSize), end < sortedIds.length);
+    }
+
+    private CursorPage<User> toUserPage(Slice<Long> userIds) {
+        // findAllById does not keep the keyset order
+        List<User> users = userRepository.findAllById(userIds.getContent())
+                .stream()
+                .sorted(Comparator.comparing(User::getId))
+                .collect(Collectors.toList());
+        String nextCursor = userIds.hasNext()
+                ? PageCursor.of(userIds.getContent().get(userIds.getContent().size() - 1)).encode()
+                : null;
+        return new CursorPage<>(users, nextCursor);
     }
 
     public List<UserDTO> getMutualFriendsList(Long currentUserId) {
@@ -97,35 +158,76 @@ public class RelationshipService {
             throw new IllegalArgumentException("User ID cannot be null for finding mutual friends.");
         }
 
-        Set<Long> currentUserFollowingIds = relationshipRepository.findByFollowerUserId(currentUserId)
-                .stream()
-                .map(Relationship::getFollowedUserId)
-                .collect(Collectors.toSet());
+        List<Long> mutualFriendIds;
+        if (followGraph.isReady()) {
+            mutualFriendIds = toList(FollowGraph.intersect(
+                    followGraph.getFollowing(currentUserId), followGraph.getFollowers(currentUserId)));
+        } else {
+            Set<Long> currentUserFollowingIds = relationshipRepository.findByFollowerUserId(currentUserId)
+                    .stream()
+                    .map(Relationship::getFollowedUserId)
+                    .collect(Collectors.toSet());
+
+            Set<Long> currentUserFollowerIds = relationshipRepository.findByFollowedUserId(currentUserId)
+                    .stream()
+                    .map(Relationship::getFollowerUserId)
+                    .collect(Collectors.toSet());
+
+            Set<Long> mutualIds = new HashSet<>(currentUserFollowingIds);
+            mutualIds.retainAll(currentUserFollowerIds);
+            mutualFriendIds = new ArrayList<>(mutualIds);
+        }
 
-        Set<Long> currentUserFollowerIds = relationshipRepository.findByFollowedUserId(currentUserId)
-                .stream()
-                .map(Relationship::getFollowerUserId)
-                .collect(Collectors.toSet());
+        return toUserDTOs(userRepository.findAllById(mutualFriendIds));
+    }
 
-        Set<Long> mutualFriendIds = new HashSet<>(currentUserFollowingIds);
-        mutualFriendIds.retainAll(currentUserFollowerIds);
+    public UserDTO toUserDTO(User user) {
+        return toUserDTOs(List.of(user)).get(0);
+    }
 
-        List<User> mutualFriends = userRepository.findAllById(mutualFriendIds);
+    // Fills follower/following counts for a whole list at once: from the follow graph when it is
+    // loaded, otherwise with a single primary key lookup on user_stats instead of two COUNTs per user.
+    public List<UserDTO> toUserDTOs(List<User> users) {
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (followGraph.isReady()) {
+            return users.stream()
+                    .map(user -> new UserDTO(user,
+                            followGraph.getFollowerCount(user.getId()),
+                            followGraph.getFollowingCount(user.getId())))
+                    .collect(Collectors.toList());
+        }
 
-        return mutualFriends.stream()
+        Set<Long> userIds = users.stream().map(User::getId).collect(Collectors.toSet());
+        Map<Long, UserStats> stats = statsService.getUserStats(userIds);
+        return users.stream()
                 .map(user -> {
-                    long followerCount = getFollowerCount(user.getId());
-                    long followingCount = getFollowingCount(user.getId());
-                    return new UserDTO(user, followerCount, followingCount);
+                    UserStats userStats = stats.get(user.getId());
+                    return new UserDTO(user, userStats.getFollowerCount(), userStats.getFollowingCount());
                 })
                 .collect(Collectors.toList());
     }
 
     public long getFollowerCount(Long userId) {
-        return relationshipRepository.countByFollowedUserId(userId);
+        if (followGraph.isReady()) {
+            return followGraph.getFollowerCount(userId);
+        }
+        return statsService.getUserStats(userId).getFollowerCount();
     }
 
     public long getFollowingCount(Long userId) {
-        return relationshipRepository.countByFollowerUserId(userId);
+        if (followGraph.isReady()) {
+            return followGraph.getFollowingCount(userId);
+        }
+        return statsService.getUserStats(userId).getFollowingCount();
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length + 1); // callers often append the current user
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
     }
 }
\ No newline at end of file
@@ -1,69 +1,416 @@
 package com.example.echobackend.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 public class S3Service {
 
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final Timer partTimer;
+    private final DistributionSummary partThroughput;
+    // Part buffers of all async uploads together, in KiB permits: an upload waits for room before
+    // it allocates and reads its next part, so concurrent uploads can't run the heap out
+    private final Semaphore bufferBudget;
+    private final int bufferBudgetPermits;
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
+    // Objects up to one part are sent with a single PUT; larger or unknown-length bodies go
+    // through a multipart upload that holds at most one part in memory (S3 minimum is 5MB)
+    @Value("${uploads.s3.part-size:8MB}")
+    private DataSize partSize;
+
+    // Parts of one async upload that may be transferring at once; reading the body waits for a
+    // free slot, so an upload holds at most this many parts (plus the one being read) in memory
+    @Value("${uploads.s3.max-parts-in-flight:4}")
+    private int maxPartsInFlight;
+
+    // Set to point at a local S3 stand-in (MinIO, LocalStack); objects are then addressed path-style
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
     // The S3Client is automatically configured by Spring Boot if you have the SDK dependencies
     // and credentials in application.properties.
-    public S3Service(S3Client s3Client) {
+    public S3Service(S3Client s3Client, S3AsyncClient s3AsyncClient, MeterRegistry meterRegistry,
+                     @Value("${uploads.s3.max-buffered:256MB}") DataSize maxBuffered) {
         this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.bufferBudgetPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(maxBuffered.toKilobytes(), 1));
+        this.bufferBudget = new Semaphore(bufferBudgetPermits);
+        Gauge.builder("uploads.s3.buffered", bufferBudget, budget -> (bufferBudgetPermits - budget.availablePermits()) * 1024.0)
+                .description("Memory held by part buffers of async S3 uploads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.partTimer = Timer.builder("uploads.s3.part.duration")
+                .description("Time to upload one part of an async S3 upload")
+                .register(meterRegistry);
+        this.partThroughput = DistributionSummary.builder("uploads.s3.part.throughput")
+                .description("Transfer rate of each part of an async S3 upload")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
     }
 
-    public String uploadFile(MultipartFile file) {
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("Cannot upload empty file.");
+    // Streams body to the object at key; contentLength is -1 when not known
+    public void upload(InputStream body, String key, String contentType, long contentLength) {
+        try {
+            if (contentLength >= 0 && contentLength <= partSize.toBytes()) {
+                if (contentLength == 0) {
+                    throw new IllegalArgumentException("Cannot upload empty file.");
+                }
+                putObject(key, contentType, RequestBody.fromInputStream(body, contentLength), contentLength);
+            } else {
+                byte[] buffer = new byte[(int) partSize.toBytes()];
+                int n = readPart(body, buffer);
+                if (n == 0) {
+                    throw new IllegalArgumentException("Cannot upload empty file.");
+                }
+                if (n < buffer.length) {
+                    putObject(key, contentType, RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, n), n), n);
+                } else {
+                    multipartUpload(key, contentType, body, buffer, n);
+                }
+            }
+        } catch (S3Exception e) {
+            // Handle S3-specific errors (e.g., permissions, bucket not found)
+            throw new RuntimeException("S3 upload failed: " + e.getMessage(), e);
+        } catch (IOException e) {
+            // Handle file stream errors
+            throw new RuntimeException("Failed to read file for S3 upload: " + e.getMessage(), e);
         }
+    }
 
-        // Generate a unique file name to avoid collisions
-        // Combine UUID with original file extension
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+    // Like upload, but parts are sent in parallel through the async client. The body is read on
+    // the calling thread; the future completes once S3 has assembled the object. contentLength is
+    // -1 when not known; a body declared smaller than a part gets a buffer of its own size.
+    public CompletableFuture<Void> uploadAsync(InputStream body, String key, String contentType, long contentLength) {
+        int partBytes = (int) partSize.toBytes();
+        // one byte more than declared, to notice a body that is longer than its header said
+        int firstSize = contentLength >= 0 && contentLength < partBytes ? (int) contentLength + 1 : partBytes;
+        int reserved = 0;
+        try {
+            reserved = reserve(firstSize);
+            byte[] first = new byte[firstSize];
+            int n = readPart(body, first, 0);
+            if (n == first.length && first.length < partBytes) {
+                release(reserved);
+                reserved = 0;
+                reserved = reserve(partBytes);
+                first = Arrays.copyOf(first, partBytes);
+                n += readPart(body, first, n);
+            }
+            if (n == 0) {
+                throw new IllegalArgumentException("Cannot upload empty file.");
+            }
+            // once the upload has started, it gives the first buffer's share of the budget back
+            int firstPermits = reserved;
+            CompletableFuture<?> uploaded;
+            if (n < first.length) {
+                uploaded = s3AsyncClient.putObject(PutObjectRequest.builder()
+                                        .bucket(bucketName)
+                                        .key(key)
+                                        .contentType(contentType)
+                                        .contentLength((long) n)
+                                        .build(),
+                                AsyncRequestBody.fromRemainingByteBufferUnsafe(ByteBuffer.wrap(first, 0, n)))
+                        .whenComplete((result, e) -> release(firstPermits));
+                reserved = 0;
+            } else {
+                reserved = 0;
+                uploaded = parallelMultipartUpload(key, contentType, body, first, firstPermits);
+            }
+            return uploaded
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof S3Exception) {
+                            throw new RuntimeException("S3 upload failed: " + cause.getMessage(), cause);
+                        }
+                        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                    })
+                    .thenApply(result -> null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new RuntimeException("Interrupted while waiting to buffer an S3 upload", e));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to read file for S3 upload: " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            release(reserved);
         }
-        String fileName = UUID.randomUUID().toString() + fileExtension;
+    }
 
+    // Server-side copy; content type and other metadata come along with the object
+    public void copyObject(String sourceKey, String targetKey) {
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(fileName) // The key is the file name in S3
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
-                    .build();
-
-            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-
-            // Construct the public URL for the uploaded file
-            // S3 URLs typically follow this pattern:
-            // https://<bucket-name>.s3.<region>.amazonaws.com/<key>
-            String fileUrl = String.format("https://%s.s3.%s.amazonaws.com/%s",
-                    bucketName,
-                    s3Client.serviceClientConfiguration().region().id(), // Get region from client config
-                    fileName);
-            return fileUrl;
+            s3Client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(sourceKey)
+                    .destinationBucket(bucketName)
+                    .destinationKey(targetKey)
+                    .build());
+        } catch (S3Exception e) {
+            throw new RuntimeException("S3 copy failed: " + e.getMessage(), e);
+        }
+    }
 
+    public InputStream openObject(String key) {
+        try {
+            return s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build());
+        } catch (S3Exception e) {
+            throw new RuntimeException("S3 download failed: " + e.getMessage(), e);
+        }
+    }
+
+    public void putBytes(String key, byte[] bytes, String contentType) {
+        try {
+            putObject(key, contentType, RequestBody.fromBytes(bytes), bytes.length);
         } catch (S3Exception e) {
-            // Handle S3-specific errors (e.g., permissions, bucket not found)
             throw new RuntimeException("S3 upload failed: " + e.getMessage(), e);
-        } catch (IOException e) {
-            // Handle file stream errors
-            throw new RuntimeException("Failed to read file for S3 upload: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    public void deleteObject(String key) {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build());
+        } catch (S3Exception e) {
+            throw new RuntimeException("S3 delete failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Construct the public URL for the uploaded file
+    // S3 URLs typically follow this pattern:
+    // https://<bucket-name>.s3.<region>.amazonaws.com/<key>
+    // or <endpoint>/<bucket-name>/<key> for a local stand-in
+    public String objectUrl(String key) {
+        if (endpoint != null && !endpoint.isBlank()) {
+            return String.format("%s/%s/%s", endpoint.replaceAll("/+$", ""), bucketName, key);
+        }
+        return String.format("https://%s.s3.%s.amazonaws.com/%s",
+                bucketName,
+                s3Client.serviceClientConfiguration().region().id(), // Get region from client config
+                key);
+    }
+
+    private void putObject(String key, String contentType, RequestBody body, long contentLength) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key) // The key is the file name in S3
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+        s3Client.putObject(putObjectRequest, body);
+    }
+
+    // buffer already holds the first firstPartSize bytes; it is reused for every following part
+    private void multipartUpload(String key, String contentType, InputStream body, byte[] buffer, int firstPartSize)
+            throws IOException {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+
+        List<CompletedPart> parts = new ArrayList<>();
+        try {
+            int n = firstPartSize;
+            while (n > 0) {
+                int partNumber = parts.size() + 1;
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) n)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, n), n)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                n = readPart(body, buffer);
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            // Otherwise the uploaded parts stay in the bucket (and are billed) until a lifecycle rule clears them
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (RuntimeException abortError) {
+                e.addSuppressed(abortError);
+            }
+            throw e;
+        }
+    }
+
+    // first is a full part holding firstPermits of the buffer budget; every following part gets
+    // its own buffer since earlier ones may still be in flight, and gives its share back once
+    // sent. If reading or any part fails, the upload is aborted once in-flight parts settle.
+    private CompletableFuture<?> parallelMultipartUpload(String key, String contentType, InputStream body, byte[] first,
+                                                         int firstPermits) {
+        String uploadId;
+        try {
+            uploadId = s3AsyncClient.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .build()).join().uploadId();
+        } catch (RuntimeException e) {
+            release(firstPermits);
+            throw e;
+        }
+
+        Semaphore slots = new Semaphore(Math.max(maxPartsInFlight, 1));
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        Throwable readError = null;
+        int permits = firstPermits;
+        try {
+            byte[] buffer = first;
+            int n = buffer.length;
+            while (n > 0 && parts.stream().noneMatch(CompletableFuture::isCompletedExceptionally)) {
+                slots.acquire();
+                int partPermits = permits;
+                permits = 0;
+                parts.add(uploadPart(key, uploadId, parts.size() + 1, buffer, n).whenComplete((part, e) -> {
+                    slots.release();
+                    release(partPermits);
+                }));
+                permits = reserve((int) partSize.toBytes());
+                buffer = new byte[(int) partSize.toBytes()];
+                n = readPart(body, buffer, 0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            readError = e;
+        } catch (IOException | RuntimeException e) {
+            readError = e;
+        } finally {
+            release(permits);
+        }
+
+        Throwable failure = readError;
+        CompletableFuture<Void> allParts = CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]));
+        return allParts
+                .handle((ignored, partError) -> {
+                    if (failure != null) {
+                        throw new CompletionException(failure);
+                    }
+                    if (partError != null) {
+                        throw partError instanceof CompletionException
+                                ? (CompletionException) partError : new CompletionException(partError);
+                    }
+                    return parts.stream().map(CompletableFuture::join).toList();
+                })
+                .thenCompose(completed -> s3AsyncClient.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                        .build()))
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        // Wait for in-flight parts first so none land after the abort
+                        allParts.handle((ignored, partError) -> s3AsyncClient.abortMultipartUpload(
+                                AbortMultipartUploadRequest.builder()
+                                        .bucket(bucketName)
+                                        .key(key)
+                                        .uploadId(uploadId)
+                                        .build()));
+                    }
+                });
+    }
+
+    private CompletableFuture<CompletedPart> uploadPart(String key, String uploadId, int partNumber, byte[] buffer, int size) {
+        long started = System.nanoTime();
+        return s3AsyncClient.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) size)
+                                .build(),
+                        AsyncRequestBody.fromRemainingByteBufferUnsafe(ByteBuffer.wrap(buffer, 0, size)))
+                .thenApply(response -> {
+                    long elapsed = System.nanoTime() - started;
+                    double bytesPerSecond = size * 1e9 / Math.max(elapsed, 1);
+                    partTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    partThroughput.record(bytesPerSecond);
+                    log.debug("Uploaded part {} of {} ({} bytes) in {} ms, {} MB/s", partNumber, key, size,
+                            elapsed / 1_000_000, String.format("%.1f", bytesPerSecond / (1 << 20)));
+                    return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+                });
+    }
+
+    // A buffer larger than the whole budget takes all of it
+    private int reserve(int bytes) throws InterruptedException {
+        int permits = Math.min((bytes + 1023) / 1024, bufferBudgetPermits);
+        bufferBudget.acquire(permits);
+        return permits;
+    }
+
+    private void release(int permits) {
+        if (permits > 0) {
+            bufferBudget.release(permits);
+        }
+    }
+
+    // Fills buffer unless the stream ends first; returns the number of bytes read
+    private static int readPart(InputStream in, byte[] buffer) throws IOException {
+        return readPart(in, buffer, 0);
+    }
+
+    // Fills buffer from offset from on; returns the number of bytes read into it
+    private static int readPart(InputStream in, byte[] buffer, int from) throws IOException {
+        int total = from;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total - from;
+    }
+}
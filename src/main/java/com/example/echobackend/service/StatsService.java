@@ -0,0 +1,274 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.PostStats;
+import com.example.echobackend.model.Relationship;
+import com.example.echobackend.model.UserStats;
+import com.example.echobackend.repository.CommentRepository;
+import com.example.echobackend.repository.LikeRepository;
+import com.example.echobackend.repository.PostStatsRepository;
+import com.example.echobackend.repository.RelationshipRepository;
+import com.example.echobackend.repository.UserStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Follower/following counts per user and like/comment counts per post, kept in the user_stats
+// and post_stats tables. Rows are created with the user or post; rows missing for accounts and
+// posts from before the tables existed are backfilled from the real counts on startup. Writers
+// apply deltas with an upsert inside their own transaction, reads never write, and a periodic job
+// repairs any drift.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatsService {
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private static final String BACKFILL_USER_STATS =
+            "INSERT IGNORE INTO user_stats (user_id, follower_count, following_count) " +
+            "SELECT u.id, " +
+            "(SELECT COUNT(*) FROM relationships r WHERE r.followed_user_id = u.id), " +
+            "(SELECT COUNT(*) FROM relationships r WHERE r.follower_user_id = u.id) " +
+            "FROM users u WHERE u.id > ? AND u.id <= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM user_stats s WHERE s.user_id = u.id)";
+
+    private static final String BACKFILL_POST_STATS =
+            "INSERT IGNORE INTO post_stats (post_id, like_count, comment_count) " +
+            "SELECT p.id, " +
+            "(SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id), " +
+            "(SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id) " +
+            "FROM posts p WHERE p.id > ? AND p.id <= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM post_stats s WHERE s.post_id = p.id)";
+
+    // Each repair is one statement, so the counts and the write see the same rows and an upsert
+    // committed meanwhile waits for it instead of being overwritten. Only drifted rows match.
+    private static final String RECONCILE_USER_STATS =
+            "UPDATE user_stats s SET " +
+            "follower_count = (SELECT COUNT(*) FROM relationships r WHERE r.followed_user_id = s.user_id), " +
+            "following_count = (SELECT COUNT(*) FROM relationships r WHERE r.follower_user_id = s.user_id) " +
+            "WHERE s.user_id > ? AND s.user_id <= ? " +
+            "AND (s.follower_count <> (SELECT COUNT(*) FROM relationships r WHERE r.followed_user_id = s.user_id) " +
+            "OR s.following_count <> (SELECT COUNT(*) FROM relationships r WHERE r.follower_user_id = s.user_id))";
+
+    private static final String RECONCILE_POST_STATS =
+            "UPDATE post_stats s SET " +
+            "like_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = s.post_id), " +
+            "comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = s.post_id) " +
+            "WHERE s.post_id > ? AND s.post_id <= ? " +
+            "AND (s.like_count <> (SELECT COUNT(*) FROM likes l WHERE l.post_id = s.post_id) " +
+            "OR s.comment_count <> (SELECT COUNT(*) FROM comments c WHERE c.post_id = s.post_id))";
+
+    private final UserStatsRepository userStatsRepository;
+    private final PostStatsRepository postStatsRepository;
+    private final RelationshipRepository relationshipRepository;
+    private final LikeRepository likeRepository;
+    private final CommentRepository commentRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void onFollow(Long followerUserId, Long followedUserId, long delta) {
+        adjustUserStats(followedUserId, delta, 0);
+        adjustUserStats(followerUserId, 0, delta);
+    }
+
+    // Bulk form of onFollow: one update per distinct (follower, following) delta pair, which for an
+    // import is a handful of statements, plus an upsert per user that has no row yet
+    @Transactional
+    public void onFollows(Collection<Relationship> relationships, long delta) {
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (Relationship relationship : relationships) {
+            deltas.computeIfAbsent(relationship.getFollowedUserId(), id -> new long[2])[0] += delta;
+            deltas.computeIfAbsent(relationship.getFollowerUserId(), id -> new long[2])[1] += delta;
+        }
+        List<Long> userIds = new ArrayList<>(deltas.keySet());
+        for (int from = 0; from < userIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, userIds.size()));
+            Set<Long> existing = new HashSet<>(userStatsRepository.findExistingUserIds(chunk));
+            Map<List<Long>, List<Long>> byDelta = new HashMap<>();
+            for (Long userId : chunk) {
+                long[] d = deltas.get(userId);
+                if (existing.contains(userId)) {
+                    byDelta.computeIfAbsent(List.of(d[0], d[1]), k -> new ArrayList<>()).add(userId);
+                } else {
+                    adjustUserStats(userId, d[0], d[1]);
+                }
+            }
+            byDelta.forEach((d, ids) -> userStatsRepository.incrementAll(ids, d.get(0), d.get(1)));
+        }
+    }
+
+    @Transactional
+    public void onLike(Long postId, long delta) {
+        adjustPostStats(postId, delta, 0);
+    }
+
+    @Transactional
+    public void onComment(Long postId, long delta) {
+        adjustPostStats(postId, 0, delta);
+    }
+
+    // Called in the transaction that creates the user or post; INSERT IGNORE so a backfill that
+    // got there first is not an error
+    @Transactional
+    public void createUserStats(Long userId) {
+        userStatsRepository.insertIgnore(userId);
+    }
+
+    @Transactional
+    public void createPostStats(Long postId) {
+        postStatsRepository.insertIgnore(postId);
+    }
+
+    @Transactional
+    public void deletePostStats(Long postId) {
+        postStatsRepository.deleteById(postId);
+    }
+
+    @Transactional
+    public void deleteUserStats(Long userId) {
+        userStatsRepository.deleteById(userId);
+    }
+
+    // The read methods below never write: a missing row (only possible before the backfill has
+    // reached it) is answered from the real counts instead.
+    @Transactional(readOnly = true)
+    public UserStats getUserStats(Long userId) {
+        return getUserStats(List.of(userId)).get(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, UserStats> getUserStats(Collection<Long> userIds) {
+        Map<Long, UserStats> stats = userStatsRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(UserStats::getUserId, s -> s));
+        List<Long> missing = userIds.stream().filter(id -> !stats.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            stats.putAll(countUserStats(missing));
+        }
+        return stats;
+    }
+
+    @Transactional(readOnly = true)
+    public PostStats getPostStats(Long postId) {
+        return getPostStats(List.of(postId)).get(postId);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, PostStats> getPostStats(Collection<Long> postIds) {
+        Map<Long, PostStats> stats = postStatsRepository.findAllById(postIds).stream()
+                .collect(Collectors.toMap(PostStats::getPostId, s -> s));
+        List<Long> missing = postIds.stream().filter(id -> !stats.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            stats.putAll(countPostStats(missing));
+        }
+        return stats;
+    }
+
+    // Creates the rows missing for users and posts from before the stats tables, in id ranges of
+    // RECONCILE_BATCH_SIZE so no single statement locks much. INSERT IGNORE keeps rows that a
+    // writer created in the meantime; their counts are right already. Ranges start at the first
+    // id without a row, so once every row exists a startup costs one query per table.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int created = backfill("users", "user_stats", "user_id", BACKFILL_USER_STATS)
+                + backfill("posts", "post_stats", "post_id", BACKFILL_POST_STATS);
+        if (created > 0) {
+            log.info("Backfilled {} missing stats rows", created);
+        }
+    }
+
+    private int backfill(String table, String statsTable, String statsColumn, String sql) {
+        Long firstMissing = jdbcTemplate.queryForObject("SELECT MIN(t.id) FROM " + table + " t WHERE NOT EXISTS " +
+                "(SELECT 1 FROM " + statsTable + " s WHERE s." + statsColumn + " = t.id)", Long.class);
+        if (firstMissing == null) {
+            return 0;
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        int created = 0;
+        for (long after = firstMissing - 1; after < maxId; after += RECONCILE_BATCH_SIZE) {
+            created += jdbcTemplate.update(sql, after, after + RECONCILE_BATCH_SIZE);
+        }
+        return created;
+    }
+
+    // Walks every stats row in primary key order, RECONCILE_BATCH_SIZE rows per statement, and
+    // overwrites counters that drifted from the source tables (e.g. rows deleted outside the
+    // services, or a crash between writes).
+    @Scheduled(fixedDelayString = "${stats.reconcile.interval-ms:3600000}",
+               initialDelayString = "${stats.reconcile.initial-delay-ms:600000}")
+    public void reconcile() {
+        int repaired = reconcile("user_stats", "user_id", RECONCILE_USER_STATS)
+                + reconcile("post_stats", "post_id", RECONCILE_POST_STATS);
+        if (repaired > 0) {
+            log.warn("Stats reconciliation repaired {} drifted counter rows", repaired);
+        }
+    }
+
+    private int reconcile(String statsTable, String idColumn, String sql) {
+        String nextBatch = "SELECT " + idColumn + " FROM " + statsTable + " WHERE " + idColumn + " > ? " +
+                "ORDER BY " + idColumn + " LIMIT " + RECONCILE_BATCH_SIZE;
+        int repaired = 0;
+        long after = 0L;
+        List<Long> batch;
+        do {
+            batch = jdbcTemplate.queryForList(nextBatch, Long.class, after);
+            if (batch.isEmpty()) {
+                break;
+            }
+            long last = batch.get(batch.size() - 1);
+            repaired += jdbcTemplate.update(sql, after, last);
+            after = last;
+        } while (batch.size() == RECONCILE_BATCH_SIZE);
+        return repaired;
+    }
+
+    // Upserts, so two first writers for the same row can't both try to insert it
+    private void adjustUserStats(Long userId, long followerDelta, long followingDelta) {
+        userStatsRepository.upsertIncrement(userId, followerDelta, followingDelta);
+    }
+
+    private void adjustPostStats(Long postId, long likeDelta, long commentDelta) {
+        postStatsRepository.upsertIncrement(postId, likeDelta, commentDelta);
+    }
+
+    private Map<Long, UserStats> countUserStats(Collection<Long> userIds) {
+        Map<Long, Long> followers = toCountMap(relationshipRepository.countFollowersByUserIds(userIds));
+        Map<Long, Long> following = toCountMap(relationshipRepository.countFollowingByUserIds(userIds));
+        Map<Long, UserStats> result = new HashMap<>();
+        for (Long userId : Set.copyOf(userIds)) {
+            result.put(userId, new UserStats(userId, followers.getOrDefault(userId, 0L), following.getOrDefault(userId, 0L)));
+        }
+        return result;
+    }
+
+    private Map<Long, PostStats> countPostStats(Collection<Long> postIds) {
+        Map<Long, Long> likes = toCountMap(likeRepository.countByPostIds(postIds));
+        Map<Long, Long> comments = toCountMap(commentRepository.countByPostIds(postIds));
+        Map<Long, PostStats> result = new HashMap<>();
+        for (Long postId : Set.copyOf(postIds)) {
+            result.put(postId, new PostStats(postId, likes.getOrDefault(postId, 0L), comments.getOrDefault(postId, 0L)));
+        }
+        return result;
+    }
+
+    static Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+}
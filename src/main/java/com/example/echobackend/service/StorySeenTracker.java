@@ -0,0 +1,213 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Story;
+import com.example.echobackend.model.StoryView;
+import com.example.echobackend.repository.StoryViewRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per-viewer "seen up to" marker for each author, held in memory as parallel sorted arrays per
+// viewer. A marker is the (createdAt, id) of the newest story seen, the order stories are listed
+// in. A viewer's state is loaded from story_views on first use; changes are collected in a
+// pending map and written back periodically with JDBC batches.
+@Slf4j
+@Component
+public class StorySeenTracker {
+
+    private static final String INSERT_VIEW =
+            "INSERT IGNORE INTO story_views (viewer_id, author_id, last_seen_story_id, last_seen_created_at) " +
+            "VALUES (?, ?, ?, ?)";
+
+    // Only moves a marker forward, so concurrent flushes from several nodes can't move it back
+    private static final String ADVANCE_VIEW =
+            "UPDATE story_views SET last_seen_story_id = ?, last_seen_created_at = ? " +
+            "WHERE viewer_id = ? AND author_id = ? AND (last_seen_created_at < ? " +
+            "OR (last_seen_created_at = ? AND last_seen_story_id < ?))";
+
+    private final StoryViewRepository storyViewRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxViewers;
+
+    private final Map<Long, SeenState> viewers = new ConcurrentHashMap<>();
+    private final Map<StoryView.StoryViewId, Marker> pending = new ConcurrentHashMap<>();
+
+    public StorySeenTracker(StoryViewRepository storyViewRepository,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${stories.seen.max-viewers:100000}") int maxViewers) {
+        this.storyViewRepository = storyViewRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxViewers = maxViewers;
+    }
+
+    // Id of the newest story of the author the viewer has seen, or null
+    public Long lastSeen(Long viewerId, Long authorId) {
+        return stateOf(viewerId).get(authorId);
+    }
+
+    public SeenState stateOf(Long viewerId) {
+        SeenState state = viewers.get(viewerId);
+        if (state != null) {
+            return state;
+        }
+        SeenState loaded = new SeenState();
+        for (StoryView view : storyViewRepository.findByViewerId(viewerId)) {
+            loaded.advance(view.getAuthorId(), new Marker(view.getLastSeenCreatedAt(), view.getLastSeenStoryId()));
+        }
+        SeenState current = viewers.putIfAbsent(viewerId, loaded);
+        return current != null ? current : loaded;
+    }
+
+    // story must be a stored story; its author is the author the marker is kept for
+    public void markSeen(Long viewerId, Story story) {
+        if (viewerId == null || story.getId() == null || story.getUserId() == null || story.getCreatedAt() == null) {
+            throw new IllegalArgumentException("A stored story and a viewer are required.");
+        }
+        Marker marker = new Marker(story.getCreatedAt(), story.getId());
+        if (stateOf(viewerId).advance(story.getUserId(), marker)) {
+            pending.merge(new StoryView.StoryViewId(viewerId, story.getUserId()), marker, Marker::max);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stories.seen.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            trim();
+            return;
+        }
+
+        List<StoryView.StoryViewId> keys = new ArrayList<>(pending.size());
+        List<Marker> markers = new ArrayList<>(pending.size());
+        for (StoryView.StoryViewId key : List.copyOf(pending.keySet())) {
+            Marker marker = pending.remove(key);
+            if (marker != null) {
+                keys.add(key);
+                markers.add(marker);
+            }
+        }
+
+        List<Object[]> inserts = new ArrayList<>(keys.size());
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            StoryView.StoryViewId key = keys.get(i);
+            Marker marker = markers.get(i);
+            inserts.add(new Object[]{key.getViewerId(), key.getAuthorId(), marker.storyId(), marker.createdAt()});
+            updates.add(new Object[]{marker.storyId(), marker.createdAt(), key.getViewerId(), key.getAuthorId(),
+                    marker.createdAt(), marker.createdAt(), marker.storyId()});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_VIEW, inserts);
+            jdbcTemplate.batchUpdate(ADVANCE_VIEW, updates);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < keys.size(); i++) {
+                pending.merge(keys.get(i), markers.get(i), Marker::max);
+            }
+            log.warn("Could not persist {} story views, will retry", keys.size(), e);
+            return;
+        }
+        trim();
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+    }
+
+    // Everything is persisted by now, so any viewer can be dropped and reloaded later
+    private void trim() {
+        if (viewers.size() <= maxViewers) {
+            return;
+        }
+        viewers.keySet().removeIf(viewerId -> viewers.size() > maxViewers && !hasPending(viewerId));
+    }
+
+    private boolean hasPending(Long viewerId) {
+        for (StoryView.StoryViewId key : pending.keySet()) {
+            if (key.getViewerId().equals(viewerId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Marker(Timestamp createdAt, long storyId) {
+
+        boolean isAfter(Marker other) {
+            int byTime = createdAt.compareTo(other.createdAt());
+            return byTime > 0 || (byTime == 0 && storyId > other.storyId());
+        }
+
+        static Marker max(Marker a, Marker b) {
+            return b.isAfter(a) ? b : a;
+        }
+    }
+
+    // Author ids sorted ascending with the matching marker at the same index
+    public static final class SeenState {
+        private long[] authorIds = new long[0];
+        private Marker[] lastSeen = new Marker[0];
+        private final ReentrantLock lock = new ReentrantLock();
+
+        public Long get(Long authorId) {
+            lock.lock();
+            try {
+                int pos = Arrays.binarySearch(authorIds, authorId);
+                return pos >= 0 ? lastSeen[pos].storyId() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // True if the viewer has seen this story, or one of the author's stories listed after it
+        public boolean hasSeen(Story story) {
+            lock.lock();
+            try {
+                int pos = Arrays.binarySearch(authorIds, story.getUserId());
+                return pos >= 0 && !new Marker(story.getCreatedAt(), story.getId()).isAfter(lastSeen[pos]);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns false if the viewer had already seen this story or a newer one
+        boolean advance(long authorId, Marker marker) {
+            lock.lock();
+            try {
+                int pos = Arrays.binarySearch(authorIds, authorId);
+                if (pos >= 0) {
+                    if (!marker.isAfter(lastSeen[pos])) {
+                        return false;
+                    }
+                    lastSeen[pos] = marker;
+                    return true;
+                }
+                pos = -pos - 1;
+                long[] ids = new long[authorIds.length + 1];
+                Marker[] markers = new Marker[lastSeen.length + 1];
+                System.arraycopy(authorIds, 0, ids, 0, pos);
+                System.arraycopy(lastSeen, 0, markers, 0, pos);
+                ids[pos] = authorId;
+                markers[pos] = marker;
+                System.arraycopy(authorIds, pos, ids, pos + 1, authorIds.length - pos);
+                System.arraycopy(lastSeen, pos, markers, pos + 1, lastSeen.length - pos);
+                authorIds = ids;
+                lastSeen = markers;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,110 +1,238 @@
 package com.example.echobackend.service;
 
 import com.example.echobackend.dto.AddStoryRequest;
+import com.example.echobackend.dto.CursorPage;
+import com.example.echobackend.dto.MarkStorySeenRequest;
 import com.example.echobackend.dto.StoryResponse;
+import com.example.echobackend.dto.StoryTrayEntry;
+import com.example.echobackend.metrics.EntryPoint;
+import com.example.echobackend.model.MediaObject;
 import com.example.echobackend.model.Story;
 import com.example.echobackend.model.User;
 import com.example.echobackend.repository.StoryRepository;
 import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class StoryService {
 
+    private static final int DEFAULT_PAGE_SIZE = 4;
+
     private final StoryRepository storyRepository;
     private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final RelationshipService relationshipService;
+    private final ActiveStoryStore activeStoryStore;
+    private final StorySeenTracker storySeenTracker;
+    private final MediaService mediaService;
+    private final MediaUrlResolver mediaUrlResolver;
+    private final PlatformTransactionManager transactionManager;
 
-    public List<StoryResponse> getStories() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
-        }
+    // When false, every read runs the windowed keyset query instead of using ActiveStoryStore
+    @Value("${stories.active-store.enabled:true}")
+    private boolean activeStoreEnabled;
+
+    @Value("${stories.purge.batch-size:1000}")
+    private int purgeBatchSize;
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+    public CursorPage<StoryResponse> getStories(String cursor, Integer limit) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
         List<Long> followedUserIds = relationshipService.getFollowedUserIds(currentUserId);
         List<Long> userIdsToFetch = new ArrayList<>(followedUserIds);
         userIdsToFetch.add(currentUserId);
 
-        List<Story> stories = storyRepository.findByUserIdInOrderByCreatedAtDesc(userIdsToFetch);
-        List<Story> limitedStories = stories.stream().limit(4).collect(Collectors.toList());
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit, DEFAULT_PAGE_SIZE);
+        List<Story> limitedStories;
+        boolean hasNext;
+        if (activeStoreEnabled) {
+            List<Story> active = activeStoryStore.newest(userIdsToFetch, after, pageSize + 1);
+            hasNext = active.size() > pageSize;
+            limitedStories = hasNext ? active.subList(0, pageSize) : active;
+        } else {
+            Timestamp since = activeStoryStore.cutoff();
+            Slice<Story> slice = after == null
+                    ? storyRepository.findPageByUserIdIn(userIdsToFetch, since, PageRequest.of(0, pageSize))
+                    : storyRepository.findPageByUserIdInBefore(userIdsToFetch, since, after.getCreatedAtTimestamp(), after.getId(), PageRequest.of(0, pageSize));
+            limitedStories = slice.getContent();
+            hasNext = slice.hasNext();
+        }
 
         Set<Long> storyUserIds = limitedStories.stream().map(Story::getUserId).collect(Collectors.toSet());
         Map<Long, User> usersMap = userRepository.findAllById(storyUserIds)
                 .stream()
                 .collect(Collectors.toMap(User::getId, Function.identity()));
 
-        return limitedStories.stream().map(story -> {
+        MediaUrlResolver.Resolved media = mediaUrlResolver.resolve(
+                limitedStories.stream().map(Story::getImg).collect(Collectors.toList()));
+
+        List<StoryResponse> items = limitedStories.stream().map(story -> {
             User storyUser = usersMap.get(story.getUserId());
             return new StoryResponse(
                 story.getId(),
-                story.getImg(),
+                media.url(story.getImg(), MediaObject.Variant.FULL),
                 story.getCreatedAt(),
                 story.getUserId(),
                 storyUser != null ? storyUser.getName() : null
             );
         }).collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasNext) {
+            Story last = limitedStories.get(limitedStories.size() - 1);
+            nextCursor = PageCursor.of(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
     }
 
-    public String addStory(AddStoryRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
+    // One entry per followed author (and the viewer) with active stories, most recently updated
+    // first. With unseenOnly, entries only carry stories newer than the viewer's seen marker and
+    // fully seen authors are left out.
+    public List<StoryTrayEntry> getStoryTray(boolean unseenOnly) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
+
+        List<Long> authorIds = new ArrayList<>(relationshipService.getFollowedUserIds(currentUserId));
+        authorIds.add(currentUserId);
+
+        Map<Long, List<Story>> storiesByAuthor = activeStoreEnabled
+                ? activeStoryStore.activeByAuthor(authorIds)
+                : storyRepository.findActiveByUserIdIn(authorIds, activeStoryStore.cutoff())
+                        .stream()
+                        .collect(Collectors.groupingBy(Story::getUserId));
+        if (storiesByAuthor.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+        StorySeenTracker.SeenState seen = storySeenTracker.stateOf(currentUserId);
+        Map<Long, Object[]> authors = userRepository.findAuthorsByIds(storiesByAuthor.keySet())
+                .stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+        List<String> mediaLocations = new ArrayList<>();
+        storiesByAuthor.values().forEach(stories -> stories.forEach(story -> mediaLocations.add(story.getImg())));
+        authors.values().forEach(author -> mediaLocations.add((String) author[2]));
+        MediaUrlResolver.Resolved media = mediaUrlResolver.resolve(mediaLocations);
+
+        List<StoryTrayEntry> tray = new ArrayList<>(storiesByAuthor.size());
+        storiesByAuthor.forEach((authorId, stories) -> {
+            Long lastSeen = seen.get(authorId);
+            List<Story> visible = stories;
+            if (unseenOnly && lastSeen != null) {
+                visible = stories.stream().filter(story -> !seen.hasSeen(story)).collect(Collectors.toList());
+            }
+            if (visible.isEmpty()) {
+                return;
+            }
+
+            Object[] author = authors.get(authorId);
+            String name = author != null ? (String) author[1] : null;
+            tray.add(new StoryTrayEntry(
+                authorId,
+                name,
+                author != null ? media.url((String) author[2], MediaObject.Variant.AVATAR) : null,
+                stories.get(0).getCreatedAt(),
+                lastSeen,
+                !seen.hasSeen(stories.get(0)),
+                visible.stream()
+                       .map(story -> new StoryResponse(story.getId(), media.url(story.getImg(), MediaObject.Variant.FULL),
+                               story.getCreatedAt(), authorId, name))
+                       .collect(Collectors.toList())
+            ));
+        });
+        tray.sort(Comparator.comparing(StoryTrayEntry::getLatestCreatedAt).reversed());
+        return tray;
+    }
+
+    public String markStorySeen(MarkStorySeenRequest request) {
+        if (request.getAuthorId() == null || request.getStoryId() == null) {
+            throw new IllegalArgumentException("authorId and storyId are required.");
+        }
+        Long currentUserId = currentUserResolver.getCurrentUserId();
+        // the marker is ordered by the story's createdAt, so only a stored story of that author will do
+        Story story = storyRepository.findById(request.getStoryId())
+                .filter(found -> found.getUserId().equals(request.getAuthorId()))
+                .orElseThrow(() -> new IllegalArgumentException("Story not found."));
+        storySeenTracker.markSeen(currentUserId, story);
+        return "Story marked as seen.";
+    }
+
+    @Transactional
+    public String addStory(AddStoryRequest request) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
         Story newStory = new Story();
         newStory.setImg(request.getImg());
         newStory.setCreatedAt(Timestamp.valueOf(LocalDateTime.now()));
         newStory.setUserId(currentUserId);
 
-        storyRepository.save(newStory);
+        Story savedStory = storyRepository.save(newStory);
+        mediaService.retain(savedStory.getImg());
+        TransactionHooks.afterCommit(() -> activeStoryStore.add(savedStory));
         return "Story has been created.";
     }
 
     @Transactional
     public String deleteStory(Long storyId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("Not logged in!");
-        }
-
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-        Long currentUserId = currentUser.getId();
+        Long currentUserId = currentUserResolver.getCurrentUserId();
 
-        boolean existsAndOwned = storyRepository.findById(storyId)
-                .map(story -> story.getUserId().equals(currentUserId))
-                .orElse(false);
-
-        if (!existsAndOwned) {
-            throw new RuntimeException("You can delete only your story or story not found!");
-        }
+        Story story = storyRepository.findById(storyId)
+                .filter(found -> found.getUserId().equals(currentUserId))
+                .orElseThrow(() -> new RuntimeException("You can delete only your story or story not found!"));
 
         storyRepository.deleteByIdAndUserId(storyId, currentUserId);
+        mediaService.release(story.getImg());
+        TransactionHooks.afterCommit(() -> activeStoryStore.remove(currentUserId, storyId));
         return "Story has been deleted.";
     }
+
+    // Deletes expired stories oldest first in batches, one short transaction each, so the purge
+    // never holds locks on a large range of the table.
+    @Scheduled(fixedDelayString = "${stories.purge.interval-ms:600000}",
+               initialDelayString = "${stories.purge.initial-delay-ms:60000}")
+    public void purgeExpiredStories() {
+        Timestamp cutoff = activeStoryStore.cutoff();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = transaction.execute(status -> {
+                List<Long> expiredIds = storyRepository.findExpiredIds(cutoff, PageRequest.of(0, purgeBatchSize));
+                if (!expiredIds.isEmpty()) {
+                    // Media left unreferenced is reclaimed by MediaService's orphan sweep
+                    storyRepository.findImgsByIdIn(expiredIds).forEach(mediaService::release);
+                    storyRepository.deleteAllByIdInBatch(expiredIds);
+                }
+                return expiredIds.size();
+            });
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+
+        activeStoryStore.expire(cutoff);
+        if (purged > 0) {
+            log.info("Purged {} expired stories", purged);
+        }
+    }
 }
\ No newline at end of file
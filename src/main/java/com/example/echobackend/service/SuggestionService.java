@@ -0,0 +1,121 @@
+package com.example.echobackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// "People you may know": users followed by the people you follow, ranked by how many of them
+// follow each candidate. Computed from FollowGraph with caps on both hops, cached per user as the
+// top-K ids and refreshed in the background for users who asked since the last refresh. Users who
+// stop asking are not refreshed, so they expire after suggestions.cache.ttl like any unread entry.
+@Slf4j
+@Service
+public class SuggestionService {
+
+    private static final long[] NONE = new long[0];
+
+    private final FollowGraph followGraph;
+    private final Cache<Long, long[]> topSuggestions;
+    // Kept apart from the cache: rewriting an entry counts as an access, so refreshing every
+    // cached user would keep all of them alive forever
+    private final Set<Long> readSinceRefresh = ConcurrentHashMap.newKeySet();
+
+    // Only this many of the user's followings are expanded, and only this many of each one's
+    // followings are counted, so one traversal is bounded regardless of graph shape
+    @Value("${suggestions.max-first-hop:500}")
+    private int maxFirstHop;
+
+    @Value("${suggestions.max-second-hop:1000}")
+    private int maxSecondHop;
+
+    @Value("${suggestions.top-k:50}")
+    private int topK;
+
+    public SuggestionService(FollowGraph followGraph,
+                             MeterRegistry meterRegistry,
+                             @Value("${suggestions.cache.max-users:100000}") long maxUsers,
+                             @Value("${suggestions.cache.ttl:6h}") Duration ttl) {
+        this.followGraph = followGraph;
+        this.topSuggestions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, topSuggestions, "suggestions");
+    }
+
+    public boolean isAvailable() {
+        return followGraph.isReady();
+    }
+
+    // Best candidates first, skipping anyone the user started following since the last refresh
+    public List<Long> getSuggestedUserIds(Long userId, int limit) {
+        long[] cached = topSuggestions.get(userId, this::compute);
+        readSinceRefresh.add(userId);
+        List<Long> result = new ArrayList<>(Math.min(limit, cached.length));
+        for (int i = 0; i < cached.length && result.size() < limit; i++) {
+            if (!followGraph.isFollowing(userId, cached[i])) {
+                result.add(cached[i]);
+            }
+        }
+        return result;
+    }
+
+    // Recomputes the users who read their suggestions since the last run, so suggestions follow
+    // graph changes without a request paying for it
+    @Scheduled(fixedDelayString = "${suggestions.refresh.interval-ms:900000}",
+               initialDelayString = "${suggestions.refresh.initial-delay-ms:900000}")
+    public void refresh() {
+        if (!followGraph.isReady()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Long> userIds = new ArrayList<>(readSinceRefresh);
+        readSinceRefresh.removeAll(userIds);
+        for (Long userId : userIds) {
+            topSuggestions.asMap().computeIfPresent(userId, (id, previous) -> compute(id));
+        }
+        log.debug("Refreshed suggestions for {} users in {} ms", userIds.size(), System.currentTimeMillis() - start);
+    }
+
+    long[] compute(long userId) {
+        long[] following = followGraph.getFollowing(userId);
+        if (following.length == 0) {
+            return NONE;
+        }
+
+        Map<Long, int[]> mutualCounts = new HashMap<>();
+        for (int i = 0; i < following.length && i < maxFirstHop; i++) {
+            long[] secondHop = followGraph.getFollowing(following[i]);
+            for (int j = 0; j < secondHop.length && j < maxSecondHop; j++) {
+                long candidate = secondHop[j];
+                if (candidate != userId && Arrays.binarySearch(following, candidate) < 0) {
+                    mutualCounts.computeIfAbsent(candidate, id -> new int[1])[0]++;
+                }
+            }
+        }
+
+        // Most mutual connections first, lower id on ties so results are stable
+        return mutualCounts.entrySet().stream()
+                .sorted((a, b) -> a.getValue()[0] != b.getValue()[0]
+                        ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                        : Long.compare(a.getKey(), b.getKey()))
+                .limit(topK)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.config.ThreadingConfig;
+import com.example.echobackend.config.VirtualThreads;
+import com.example.echobackend.metrics.EntryPoint;
+import com.example.echobackend.model.MediaObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Streams upload bodies to local disk or S3 on a bounded pool, so the servlet thread is handed
+// back while the bytes are copied. Bodies are hashed on the way through and handed to
+// MediaService, which keeps one copy per distinct content. At most uploads.max-concurrent uploads run at once and
+// uploads.queue-capacity more may wait; beyond that execute() throws RejectedExecutionException,
+// which controllers turn into a 503 so clients back off instead of piling up open connections.
+// Metrics: uploads.duration{storage, outcome} from acceptance to stored, uploads.bytes{storage},
+// uploads.deduplicated{storage} for bodies skipped by a known X-Content-SHA256, and the
+// uploads.active / uploads.queued gauges.
+@Slf4j
+@Service
+@EntryPoint
+public class UploadService {
+
+    private static final int MAX_FILENAME_LENGTH = 100;
+    private static final int MAX_EXTENSION_LENGTH = 10;
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+    // Bodies are staged here until their hash is known; a bucket lifecycle rule on this prefix
+    // clears anything left behind by a crash
+    private static final String S3_STAGING_PREFIX = "tmp/";
+
+    private final S3Service s3Service;
+    private final LocalFileStorage localFileStorage;
+    private final MediaService mediaService;
+    private final long maxBytes;
+    private final ThreadPoolExecutor executor;
+    // Commits write to the database, so they don't belong on the S3 SDK's response threads. They
+    // are queued on the upload pool; when it is full (or shut down) the commit runs on the thread
+    // that completed the upload rather than failing an upload that is already stored.
+    private final Executor commitExecutor;
+    private final MeterRegistry meterRegistry;
+
+    // Async mode sends S3 parts in parallel through S3AsyncClient and frees the upload thread as
+    // soon as the body has been read; otherwise parts go one at a time through the blocking client
+    @Value("${uploads.s3.async:true}")
+    private boolean s3Async;
+
+    public UploadService(S3Service s3Service,
+                         LocalFileStorage localFileStorage,
+                         MediaService mediaService,
+                         @Value("${uploads.max-bytes:200MB}") DataSize maxBytes,
+                         @Value("${uploads.max-concurrent:8}") int maxConcurrent,
+                         @Value("${uploads.queue-capacity:32}") int queueCapacity,
+                         Environment environment,
+                         MeterRegistry meterRegistry) {
+        this.s3Service = s3Service;
+        this.localFileStorage = localFileStorage;
+        this.mediaService = mediaService;
+        this.maxBytes = maxBytes.toBytes();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), uploadThreads(environment),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.commitExecutor = command -> {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        };
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("uploads.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("uploads.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    // Completes with the stored file name. declaredHash is the SHA-256 the client says the body
+    // has (or null); when that content is already stored the body is not read at all.
+    public CompletableFuture<String> toLocalDisk(InputStream body, String originalFilename, long contentLength,
+                                                 String declaredHash) {
+        Optional<String> existing = findDeclared(MediaObject.Storage.LOCAL, declaredHash);
+        if (existing.isPresent()) {
+            return CompletableFuture.completedFuture(existing.get());
+        }
+        checkDeclaredSize(contentLength);
+        return timed(MediaObject.Storage.LOCAL, CompletableFuture.supplyAsync(() -> {
+            LimitedInputStream limited = new LimitedInputStream(body, maxBytes);
+            try (DigestInputStream hashing = new DigestInputStream(limited, sha256())) {
+                Path temp = localFileStorage.storeTemporary(hashing);
+                return commit(MediaObject.Storage.LOCAL, temp.toString(), hashing, limited.getCount(),
+                        originalFilename, declaredHash);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to upload file: " + e.getMessage(), e);
+            }
+        }, executor));
+    }
+
+    // Completes with the object's URL
+    public CompletableFuture<String> toS3(InputStream body, String originalFilename, String contentType, long contentLength,
+                                          String declaredHash) {
+        Optional<String> existing = findDeclared(MediaObject.Storage.S3, declaredHash);
+        if (existing.isPresent()) {
+            return CompletableFuture.completedFuture(existing.get());
+        }
+        checkDeclaredSize(contentLength);
+        String stagingKey = S3_STAGING_PREFIX + UUID.randomUUID();
+        if (s3Async) {
+            return timed(MediaObject.Storage.S3, CompletableFuture.supplyAsync(() -> {
+                LimitedInputStream limited = new LimitedInputStream(body, maxBytes);
+                try (DigestInputStream hashing = new DigestInputStream(limited, sha256())) {
+                    // uploadAsync has read the whole body when it returns, so the digest is final;
+                    // the commit then runs back on the upload pool once the parts are stored
+                    CompletableFuture<Void> uploaded = s3Service.uploadAsync(hashing, stagingKey, contentType, contentLength);
+                    return uploaded.thenApplyAsync(done -> commit(MediaObject.Storage.S3, stagingKey, hashing,
+                            limited.getCount(), originalFilename, declaredHash), commitExecutor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to upload file: " + e.getMessage(), e);
+                }
+            }, executor).thenCompose(upload -> upload));
+        }
+        return timed(MediaObject.Storage.S3, CompletableFuture.supplyAsync(() -> {
+            LimitedInputStream limited = new LimitedInputStream(body, maxBytes);
+            try (DigestInputStream hashing = new DigestInputStream(limited, sha256())) {
+                s3Service.upload(hashing, stagingKey, contentType, contentLength);
+                return commit(MediaObject.Storage.S3, stagingKey, hashing, limited.getCount(),
+                        originalFilename, declaredHash);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to upload file: " + e.getMessage(), e);
+            }
+        }, executor));
+    }
+
+    public int activeUploads() {
+        return executor.getActiveCount();
+    }
+
+    public int queuedUploads() {
+        return executor.getQueue().size();
+    }
+
+    // Last path segment of a client-supplied name with anything outside [A-Za-z0-9._-] replaced
+    static String safeFilename(String originalFilename) {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            return "file";
+        }
+        String name = originalFilename.substring(Math.max(originalFilename.lastIndexOf('/'), originalFilename.lastIndexOf('\\')) + 1);
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.length() > MAX_FILENAME_LENGTH) {
+            name = name.substring(name.length() - MAX_FILENAME_LENGTH);
+        }
+        return name.isEmpty() || name.chars().allMatch(c -> c == '.') ? "file" : name;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} uploads still running at shutdown", executor.getActiveCount());
+            executor.shutdownNow();
+        }
+    }
+
+    private Optional<String> findDeclared(MediaObject.Storage storage, String declaredHash) {
+        if (declaredHash == null || declaredHash.isBlank()) {
+            return Optional.empty();
+        }
+        if (!SHA256_HEX.matcher(declaredHash).matches()) {
+            throw new IllegalArgumentException("Content hash must be a hex encoded SHA-256.");
+        }
+        Optional<String> existing = mediaService.findExisting(storage, declaredHash.toLowerCase(Locale.ROOT));
+        if (existing.isPresent()) {
+            Counter.builder("uploads.deduplicated").tag("storage", tag(storage)).register(meterRegistry).increment();
+        }
+        return existing;
+    }
+
+    private CompletableFuture<String> timed(MediaObject.Storage storage, CompletableFuture<String> upload) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return upload.whenComplete((stored, error) -> sample.stop(Timer.builder("uploads.duration")
+                .tag("storage", tag(storage))
+                .tag("outcome", error == null ? "stored" : "failed")
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    private static String tag(MediaObject.Storage storage) {
+        return storage.name().toLowerCase(Locale.ROOT);
+    }
+
+    private String commit(MediaObject.Storage storage, String stagedRef, DigestInputStream hashing, long size,
+                          String originalFilename, String declaredHash) {
+        String contentHash = HexFormat.of().formatHex(hashing.getMessageDigest().digest());
+        if (declaredHash != null && !declaredHash.isBlank() && !declaredHash.equalsIgnoreCase(contentHash)) {
+            mediaService.discardStaged(storage, stagedRef);
+            throw new IllegalArgumentException("Uploaded content does not match the declared hash.");
+        }
+        DistributionSummary.builder("uploads.bytes")
+                .baseUnit("bytes")
+                .tag("storage", tag(storage))
+                .register(meterRegistry)
+                .record(size);
+        return mediaService.commit(storage, stagedRef, contentHash, size, extensionOf(originalFilename));
+    }
+
+    static String extensionOf(String originalFilename) {
+        String safe = safeFilename(originalFilename);
+        int dot = safe.lastIndexOf('.');
+        String extension = dot > 0 ? safe.substring(dot).toLowerCase(Locale.ROOT) : "";
+        return extension.length() <= MAX_EXTENSION_LENGTH ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Fail before queueing when the client already told us the body is too big
+    private void checkDeclaredSize(long contentLength) {
+        if (contentLength > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+    }
+
+    // The pool still caps how many uploads run at once; in virtual-thread mode the copies just
+    // stop holding a platform thread each while they wait on the client or the disk
+    private static ThreadFactory uploadThreads(Environment environment) {
+        if (ThreadingConfig.virtualThreadsEnabled(environment)) {
+            return VirtualThreads.factory("upload-vt-");
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.echobackend.service;
+
+// Thrown while streaming an upload once it goes over uploads.max-bytes
+public class UploadTooLargeException extends RuntimeException {
+
+    public UploadTooLargeException(long maxBytes) {
+        super("File is larger than the " + maxBytes + " byte limit.");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.echobackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Bounded, TTL-based cache of UserDetails for JwtAuthenticationFilter, so an authenticated
+// request does not need a users SELECT. Login keeps going to UserDetailsService directly.
+// Hit/miss, load latency and eviction metrics are published under cache=user-details.
+@Component
+public class UserDetailsCache {
+
+    private final UserDetailsService userDetailsService;
+    private final Cache<String, UserDetails> cache;
+
+    public UserDetailsCache(UserDetailsService userDetailsService,
+                            MeterRegistry meterRegistry,
+                            @Value("${security.user-cache.max-size:10000}") long maxSize,
+                            @Value("${security.user-cache.ttl:5m}") Duration ttl) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user-details");
+    }
+
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cache.get(username, userDetailsService::loadUserByUsername);
+    }
+
+    // Drops the entry once the surrounding transaction commits, or right away without one
+    public void invalidate(String username) {
+        TransactionHooks.afterCommit(() -> cache.invalidate(username));
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory type-ahead index over username and name. Text is normalized (accents stripped,
+// lower-cased); candidates are gathered best rank first from prefix indexes of usernames and
+// name words, then (for queries of 3+ characters) substring matches from trigram posting lists.
+// Kept up to date by AuthService/UserService and rebuilt from the users table on startup or
+// through the usersearch actuator endpoint.
+@Slf4j
+@Component
+public class UserSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    // Upper bound on candidates ranked per query, so one-letter queries stay cheap. Prefix matches
+    // are gathered in the order search ranks them, so the cut never drops one that would rank
+    // above a candidate kept; substring matches past the cap are dropped by id.
+    private static final int MAX_CANDIDATES = 2_000;
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Map<Long, Entry> entries = new HashMap<>();
+    private Map<String, PostingList> trigrams = new HashMap<>();
+    private PrefixIndex usernames = new PrefixIndex();
+    private PrefixIndex nameWords = new PrefixIndex();
+    private volatile boolean ready;
+    // While a rebuild reads the table: the latest put (or null for a remove) per user since it
+    // started, replayed onto the rebuilt index before it replaces the current one
+    private Map<Long, Entry> changedDuringRebuild;
+
+    public UserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Until a rebuild succeeds, UserService keeps searching with the database query
+            log.warn("Could not build user search index, falling back to database queries", e);
+        }
+    }
+
+    // Rebuilds run one at a time. Users added, renamed or deleted while the table is being read
+    // are replayed onto the new index rather than lost when it is swapped in; a rebuild is never
+    // thrown away, which under steady sign-ups would mean it never finished.
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new LinkedHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildFromTable();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildFromTable() {
+        long start = System.currentTimeMillis();
+        Map<Long, Entry> newEntries = new HashMap<>();
+        Map<String, PostingList> newTrigrams = new HashMap<>();
+        PrefixIndex newUsernames = new PrefixIndex();
+        PrefixIndex newNameWords = new PrefixIndex();
+
+        long lastId = 0L;
+        List<Object[]> batch;
+        do {
+            batch = userRepository.findSearchRowsAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (Object[] row : batch) {
+                lastId = (Long) row[0];
+                Entry entry = new Entry(lastId, (String) row[1], (String) row[2]);
+                newEntries.put(lastId, entry);
+                addPostings(entry, newTrigrams, newUsernames, newNameWords);
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            entries = newEntries;
+            trigrams = newTrigrams;
+            usernames = newUsernames;
+            nameWords = newNameWords;
+            changedDuringRebuild.forEach((userId, entry) -> {
+                if (entry != null) {
+                    putEntry(entry);
+                } else {
+                    removeEntry(userId);
+                }
+            });
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User search index built: {} users, {} trigrams in {} ms",
+                newEntries.size(), newTrigrams.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return trigrams.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds or replaces the user's entry
+    public void put(Long userId, String username, String name) {
+        Entry entry = new Entry(userId, username, name);
+        lock.writeLock().lock();
+        try {
+            putEntry(entry);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(userId, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(userId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(userId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of the best matches, best first: exact username, username prefix, name word prefix,
+    // then substring matches; ties go to the shorter username.
+    public List<Long> search(String query, int limit) {
+        String q = normalize(query).trim();
+        if (q.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<Entry> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (long userId : candidates(q, limit)) {
+                Entry entry = entries.get(userId);
+                if (entry != null && entry.matches(q)) {
+                    matches.add(entry);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.<Entry>comparingInt(entry -> entry.rank(q))
+                .thenComparingInt(entry -> entry.username.length())
+                .thenComparingLong(entry -> entry.id));
+        List<Long> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(matches.get(i).id);
+        }
+        return result;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Caller holds the read lock. Ids that may match q in rank order: username prefix (an exact
+    // username sorts first), name word prefix, then substrings. A tier is only read while the
+    // ones before it matched fewer than limit users, since its matches would all rank lower.
+    private Set<Long> candidates(String q, int limit) {
+        Set<Long> ids = new LinkedHashSet<>();
+        usernames.collect(q, ids);
+        if (ids.size() < limit) {
+            nameWords.collect(q, ids);
+        }
+        if (ids.size() < limit && q.length() >= 3) {
+            addSubstringCandidates(q, ids);
+        }
+        return ids;
+    }
+
+    // Users holding every trigram of q; most contain q, the rest are filtered out by the caller
+    private void addSubstringCandidates(String q, Set<Long> ids) {
+        List<PostingList> lists = new ArrayList<>();
+        for (String trigram : trigramsOf(q)) {
+            PostingList postings = trigrams.get(trigram);
+            if (postings == null) {
+                return;
+            }
+            lists.add(postings);
+        }
+        // Walk the shortest list and probe the others
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        PostingList shortest = lists.get(0);
+        for (int i = 0; i < shortest.size && ids.size() < MAX_CANDIDATES; i++) {
+            long id = shortest.ids[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(id);
+            }
+            if (inAll) {
+                ids.add(id);
+            }
+        }
+    }
+
+    // Caller holds the write lock
+    private void putEntry(Entry entry) {
+        Entry previous = entries.put(entry.id, entry);
+        if (previous != null) {
+            removePostings(previous);
+        }
+        addPostings(entry, trigrams, usernames, nameWords);
+    }
+
+    // Caller holds the write lock
+    private void removeEntry(Long userId) {
+        Entry previous = entries.remove(userId);
+        if (previous != null) {
+            removePostings(previous);
+        }
+    }
+
+    private static void addPostings(Entry entry, Map<String, PostingList> trigrams,
+                                    PrefixIndex usernames, PrefixIndex nameWords) {
+        for (String trigram : entry.trigrams()) {
+            trigrams.computeIfAbsent(trigram, key -> new PostingList()).add(entry.id);
+        }
+        if (!entry.username.isEmpty()) {
+            usernames.add(entry, entry.username);
+        }
+        for (String word : entry.nameWords()) {
+            nameWords.add(entry, word);
+        }
+    }
+
+    // Caller holds the write lock
+    private void removePostings(Entry entry) {
+        for (String trigram : entry.trigrams()) {
+            removePosting(trigrams, trigram, entry.id);
+        }
+        usernames.remove(entry, entry.username);
+        for (String word : entry.nameWords()) {
+            nameWords.remove(entry, word);
+        }
+    }
+
+    private static void removePosting(Map<String, PostingList> map, String key, long id) {
+        PostingList postings = map.get(key);
+        if (postings != null && postings.remove(id) && postings.size == 0) {
+            map.remove(key);
+        }
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static final class Entry {
+        final long id;
+        final String username;
+        final String name;
+
+        Entry(long id, String username, String name) {
+            this.id = id;
+            this.username = normalize(username);
+            this.name = normalize(name);
+        }
+
+        Set<String> trigrams() {
+            Set<String> result = trigramsOf(username);
+            result.addAll(trigramsOf(name));
+            return result;
+        }
+
+        Set<String> nameWords() {
+            Set<String> result = new HashSet<>();
+            for (String word : name.split("\\s+")) {
+                if (!word.isEmpty()) {
+                    result.add(word);
+                }
+            }
+            return result;
+        }
+
+        boolean matches(String q) {
+            return username.contains(q) || name.contains(q);
+        }
+
+        int rank(String q) {
+            if (username.equals(q)) {
+                return 0;
+            }
+            if (username.startsWith(q)) {
+                return 1;
+            }
+            if (name.startsWith(q) || name.contains(" " + q)) {
+                return 2;
+            }
+            return 3;
+        }
+    }
+
+    // Posting lists by key, grouped by the username length of the users they hold. search breaks
+    // ties by shorter username, then lower id, and collect gathers matches in that same order:
+    // groups shortest first, and within a group the sorted posting lists of every matching key
+    // merged by id.
+    private static final class PrefixIndex {
+        private final NavigableMap<Integer, NavigableMap<String, PostingList>> groups = new TreeMap<>();
+
+        void add(Entry entry, String key) {
+            groups.computeIfAbsent(entry.username.length(), length -> new TreeMap<>())
+                    .computeIfAbsent(key, k -> new PostingList())
+                    .add(entry.id);
+        }
+
+        void remove(Entry entry, String key) {
+            NavigableMap<String, PostingList> group = groups.get(entry.username.length());
+            if (group != null) {
+                removePosting(group, key, entry.id);
+                if (group.isEmpty()) {
+                    groups.remove(entry.username.length());
+                }
+            }
+        }
+
+        // Adds users with a key starting with q until ids holds MAX_CANDIDATES
+        void collect(String q, Set<Long> ids) {
+            for (NavigableMap<String, PostingList> group : groups.values()) {
+                PriorityQueue<PostingCursor> cursors =
+                        new PriorityQueue<>(Comparator.comparingLong(PostingCursor::current));
+                for (PostingList postings : group.subMap(q, true, q + Character.MAX_VALUE, true).values()) {
+                    cursors.add(new PostingCursor(postings));
+                }
+                while (!cursors.isEmpty()) {
+                    if (ids.size() >= MAX_CANDIDATES) {
+                        return;
+                    }
+                    PostingCursor cursor = cursors.poll();
+                    ids.add(cursor.current());
+                    if (cursor.advance()) {
+                        cursors.add(cursor);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class PostingCursor {
+        private final PostingList postings;
+        private int pos;
+
+        PostingCursor(PostingList postings) {
+            this.postings = postings;
+        }
+
+        long current() {
+            return postings.ids[pos];
+        }
+
+        boolean advance() {
+            return ++pos < postings.size;
+        }
+    }
+
+    // Sorted, growable array of user ids
+    private static final class PostingList {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
@@ -1,53 +1,65 @@
 package com.example.echobackend.service;
 
+import com.example.echobackend.metrics.EntryPoint;
 import com.example.echobackend.model.User;
 import com.example.echobackend.model.Relationship;
 import com.example.echobackend.repository.RelationshipRepository;
 import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.Collections;
 import com.example.echobackend.dto.UserDTO;
 
 @Service
+@EntryPoint
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int DEFAULT_SUGGESTION_LIMIT = 10;
+
     private final UserRepository userRepository;
     private final RelationshipRepository relationshipRepository;
     private final RelationshipService relationshipService;
+    private final CurrentUserResolver currentUserResolver;
+    private final UserDetailsCache userDetailsCache;
+    private final UserSearchIndex userSearchIndex;
+    private final SuggestionService suggestionService;
+    private final MediaService mediaService;
+    private final StatsService statsService;
+    private final FollowGraph followGraph;
+    private final HomeTimelineStore homeTimelineStore;
 
     public UserDTO getUserById(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
 
-        long followerCount = relationshipService.getFollowerCount(userId);
-        long followingCount = relationshipService.getFollowingCount(userId);
-
-        return new UserDTO(user, followerCount, followingCount);
+        return relationshipService.toUserDTO(user);
     }
 
     @Transactional
     public void updateUser(User userDetails) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || authentication.getName().equals("anonymousUser")) {
-            throw new RuntimeException("Not logged in!");
+        Long currentUserId = currentUserResolver.getCurrentUserId();
+        if (!currentUserId.equals(userDetails.getId())) {
+            throw new RuntimeException("You are not authorized to update this user's profile.");
         }
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
+        User currentUser = userRepository.findById(currentUserId)
                 .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
 
-        if (!currentUser.getId().equals(userDetails.getId())) {
-            throw new RuntimeException("You are not authorized to update this user's profile.");
-        }
+        replaceMedia(currentUser.getProfilePic(), userDetails.getProfilePic());
+        replaceMedia(currentUser.getCoverPic(), userDetails.getCoverPic());
 
         currentUser.setName(userDetails.getName());
         currentUser.setCity(userDetails.getCity());
@@ -57,57 +69,83 @@ public class UserService {
         currentUser.setWebsiteUrl(userDetails.getWebsiteUrl());
 
         userRepository.save(currentUser);
+        userDetailsCache.invalidate(currentUser.getUsername());
+        TransactionHooks.afterCommit(() -> userSearchIndex.put(currentUser.getId(), currentUser.getUsername(), currentUser.getName()));
     }
 
     @Transactional
     public void deleteUser(Long userIdToDelete) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated() || authentication.getName().equals("anonymousUser")) {
-            throw new RuntimeException("Not logged in!");
-        }
-
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
-
-        if (!currentUser.getId().equals(userIdToDelete)) {
+        Long currentUserId = currentUserResolver.getCurrentUserId();
+        if (!currentUserId.equals(userIdToDelete)) {
             throw new RuntimeException("You are not authorized to delete this user's profile.");
         }
 
-        if (!userRepository.existsById(userIdToDelete)) {
-            throw new RuntimeException("User with ID " + userIdToDelete + " not found.");
-        }
-
-        userRepository.deleteById(userIdToDelete);
+        User userToDelete = userRepository.findById(userIdToDelete)
+                .orElseThrow(() -> new RuntimeException("User with ID " + userIdToDelete + " not found."));
+
+        // The user's follows go with them: the other side's counters drop and the rows are deleted
+        // here rather than left to the foreign keys
+        List<Relationship> relationships = new ArrayList<>(relationshipRepository.findByFollowerUserId(userIdToDelete));
+        relationships.addAll(relationshipRepository.findByFollowedUserId(userIdToDelete));
+        statsService.onFollows(relationships, -1);
+        relationshipRepository.deleteAll(relationships);
+        statsService.deleteUserStats(userIdToDelete);
+
+        userRepository.delete(userToDelete);
+        userDetailsCache.invalidate(userToDelete.getUsername());
+        TransactionHooks.afterCommit(() -> {
+            for (Relationship relationship : relationships) {
+                if (relationship.getFollowedUserId().equals(userIdToDelete)) {
+                    homeTimelineStore.removeAuthor(relationship.getFollowerUserId(), userIdToDelete);
+                }
+            }
+            homeTimelineStore.evict(userIdToDelete);
+            followGraph.removeUser(userIdToDelete);
+            userSearchIndex.remove(userIdToDelete);
+        });
     }
 
-    public List<User> getSuggestions() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    private void replaceMedia(String previous, String next) {
+        if (!Objects.equals(previous, next)) {
+            mediaService.retain(next);
+            mediaService.release(previous);
+        }
+    }
 
-        if (authentication == null || !authentication.isAuthenticated() || authentication.getName().equals("anonymousUser")) {
+    // Friends-of-friends ranked by mutual connections; while the follow graph is loading, a
+    // bounded page of users the caller doesn't follow yet
+    public List<UserDTO> getSuggestions(Integer limit) {
+        Long currentUserId = currentUserResolver.findCurrentUserId();
+        if (currentUserId == null) {
             return Collections.emptyList();
         }
 
-        String authenticatedUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(authenticatedUsername)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found."));
+        int size = PageCursor.clampLimit(limit, DEFAULT_SUGGESTION_LIMIT);
+        if (suggestionService.isAvailable()) {
+            return relationshipService.toUserDTOs(findAllInOrder(suggestionService.getSuggestedUserIds(currentUserId, size)));
+        }
 
-        Set<Long> followingIds = relationshipRepository.findByFollowerUserId(currentUser.getId())
+        Set<Long> followingIds = relationshipRepository.findByFollowerUserId(currentUserId)
                 .stream()
                 .map(Relationship::getFollowedUserId)
                 .collect(Collectors.toSet());
 
-        followingIds.add(currentUser.getId());
+        followingIds.add(currentUserId);
 
-        return userRepository.findAllByIdNotIn(followingIds);
+        return relationshipService.toUserDTOs(userRepository.findAllByIdNotIn(followingIds, PageRequest.of(0, size)));
     }
 
-    public List<User> searchUsers(String query) {
+    public List<UserDTO> searchUsers(String query, Integer limit) {
         if (query == null || query.trim().isEmpty()) {
             return Collections.emptyList();
         }
-        return userRepository.findByUsernameContainingIgnoreCaseOrNameContainingIgnoreCase(query, query);
+        int size = PageCursor.clampLimit(limit, DEFAULT_SEARCH_LIMIT);
+        if (!userSearchIndex.isReady()) {
+            return relationshipService.toUserDTOs(userRepository
+                    .findByUsernameContainingIgnoreCaseOrNameContainingIgnoreCase(query, query, PageRequest.of(0, size)));
+        }
+
+        return relationshipService.toUserDTOs(findAllInOrder(userSearchIndex.search(query, size)));
     }
 
     public boolean isUsernameTaken(String username) {
@@ -117,4 +155,17 @@ public class UserService {
     public boolean isEmailTaken(String email) {
         return userRepository.findByEmail(email).isPresent();
     }
+
+    // findAllById doesn't keep the order of the ids, which here carries the ranking
+    private List<User> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, User> usersById = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,338 @@
+package com.example.echobackend.load;
+
+import com.example.echobackend.config.IdBlockAligner;
+import com.example.echobackend.dto.ImportPostRequest;
+import com.example.echobackend.dto.ImportRelationshipRequest;
+import com.example.echobackend.service.BulkImportService;
+import com.example.echobackend.service.FollowGraph;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// End-to-end load test of the whole API against H2 (MySQL mode) and S3Stub, run with
+//   mvn -P load-test test [-Dload.users=5000 -Dload.concurrency=64 -Dload.duration=60s ...]
+// Seeds load.users accounts with a power-law follow graph (load.avg-follows each, skewed towards
+// a few celebrities) and load.posts-per-user posts, then load.concurrency clients, each logged
+// in as a random seeded user, run a weighted mix of feed, profile, post, like, comment, follow,
+// mutual friends, story and upload requests for load.duration after load.warmup. Prints
+// throughput and p50/p99/p999 per endpoint and writes the same table to target/load-test-report.txt.
+// Fails when more than load.max-error-rate of all requests end in a 5xx or an I/O error, or
+// when load.max-p99-ms is set and an endpoint's p99 exceeds it.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"uploads.queue-capacity=256", "logging.level.com.example.echobackend=WARN"})
+class ApiLoadTests {
+
+	private static final String PASSWORD = "load-test-password";
+	private static final int UPLOAD_VARIANTS = 16;
+
+	private static S3Stub s3;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private FollowGraph followGraph;
+
+	@Autowired
+	private BulkImportService bulkImportService;
+
+	@Autowired
+	private IdBlockAligner idBlockAligner;
+
+	private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+	private final AtomicLong registrations = new AtomicLong();
+
+	private int users;
+	private int posts;
+	private List<byte[]> uploadBodies;
+
+	@DynamicPropertySource
+	static void s3Endpoint(DynamicPropertyRegistry registry) throws IOException {
+		s3 = new S3Stub();
+		registry.add("aws.s3.endpoint", s3::endpoint);
+	}
+
+	@AfterAll
+	static void stopS3() {
+		s3.close();
+	}
+
+	@Test
+	void mixedWorkload() throws Exception {
+		users = Integer.getInteger("load.users", 2000);
+		int averageFollows = Integer.getInteger("load.avg-follows", 20);
+		int postsPerUser = Integer.getInteger("load.posts-per-user", 3);
+		int concurrency = Integer.getInteger("load.concurrency", 16);
+		Duration warmup = Duration.parse("PT" + System.getProperty("load.warmup", "5s"));
+		Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+		double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+		double maxP99Millis = Double.parseDouble(System.getProperty("load.max-p99-ms", "0"));
+
+		long seedStart = System.nanoTime();
+		seed(averageFollows, postsPerUser);
+		uploadBodies = uploadBodies();
+		long seedMillis = (System.nanoTime() - seedStart) / 1_000_000;
+
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		long measureFrom = System.nanoTime() + warmup.toNanos();
+		long end = measureFrom + duration.toNanos();
+		List<Future<Map<String, LatencyStats>>> running = new ArrayList<>();
+		for (int i = 0; i < concurrency; i++) {
+			running.add(clients.submit(() -> runClient(measureFrom, end)));
+		}
+		Map<String, LatencyStats> byEndpoint = new TreeMap<>();
+		for (Future<Map<String, LatencyStats>> client : running) {
+			client.get().forEach((endpoint, stats) -> byEndpoint.computeIfAbsent(endpoint, e -> new LatencyStats()).merge(stats));
+		}
+		clients.shutdown();
+
+		String report = report(byEndpoint, duration, concurrency, seedMillis);
+		System.out.println(report);
+		Files.writeString(Path.of("target", "load-test-report.txt"), report);
+
+		long total = byEndpoint.values().stream().mapToLong(LatencyStats::count).sum();
+		long errors = byEndpoint.values().stream().mapToLong(LatencyStats::errors).sum();
+		assertThat(total).isPositive();
+		assertThat((double) errors / total).as("share of requests failing with 5xx or I/O errors").isLessThanOrEqualTo(maxErrorRate);
+		if (maxP99Millis > 0) {
+			byEndpoint.forEach((endpoint, stats) -> assertThat(stats.percentilesMillis(0.99)[0])
+					.as("p99 of %s in ms", endpoint).isLessThanOrEqualTo(maxP99Millis));
+		}
+	}
+
+	// Users go straight into the database (BCrypt-hashing one password per seeded user through /register
+	// would dominate the setup time); follows and posts go through the bulk importer
+	private void seed(int averageFollows, int postsPerUser) {
+		String hash = passwordEncoder.encode(PASSWORD);
+		List<Object[]> userRows = new ArrayList<>(users);
+		for (long id = 1; id <= users; id++) {
+			userRows.add(new Object[]{id, "user" + id, "user" + id + "@example.com", hash, "User " + id,
+					"/upload/avatar" + id + ".jpg"});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, password, name, profile_pic) VALUES (?, ?, ?, ?, ?, ?)",
+				userRows);
+		idBlockAligner.alignAll();
+
+		SplittableRandom random = new SplittableRandom(42);
+		List<ImportRelationshipRequest> follows = new ArrayList<>(users * averageFollows);
+		for (long follower = 1; follower <= users; follower++) {
+			int degree = Math.min((int) (-averageFollows * Math.log(1 - random.nextDouble())), users / 4);
+			Set<Long> targets = new HashSet<>();
+			while (targets.size() < degree) {
+				long target = powerLawUser(random.nextDouble());
+				if (target != follower) {
+					targets.add(target);
+				}
+			}
+			for (long target : targets) {
+				follows.add(new ImportRelationshipRequest(follower, target));
+			}
+		}
+		bulkImportService.importRelationships(follows);
+
+		posts = users * postsPerUser;
+		LocalDateTime start = LocalDateTime.now().minusDays(7);
+		List<ImportPostRequest> postRows = new ArrayList<>(posts);
+		for (long n = 1; n <= posts; n++) {
+			postRows.add(new ImportPostRequest(1 + (n - 1) % users, "Seeded post " + n,
+					n % 2 == 0 ? "/upload/post" + n + ".jpg" : null, start.plusSeconds(n * 10)));
+		}
+		bulkImportService.importPosts(postRows);
+
+		followGraph.rebuild();
+	}
+
+	private Map<String, LatencyStats> runClient(long measureFrom, long end) {
+		Map<String, LatencyStats> stats = new TreeMap<>();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long userId = 1 + random.nextInt(users);
+		String token = login(userId, stats, measureFrom);
+
+		while (System.nanoTime() < end) {
+			int pick = random.nextInt(100);
+			long postId = 1 + random.nextInt(posts);
+			if (pick < 30) {
+				call(stats, measureFrom, "GET /api/posts (feed)", get("/api/posts", token));
+			} else if (pick < 38) {
+				call(stats, measureFrom, "GET /api/posts?userId", get("/api/posts?userId=" + powerLawUser(random.nextDouble()), token));
+			} else if (pick < 44) {
+				call(stats, measureFrom, "POST /api/posts", post("/api/posts", token,
+						"{\"description\":\"Load test post\",\"img\":null}"));
+			} else if (pick < 58) {
+				call(stats, measureFrom, "POST /api/likes", post("/api/likes", token, "{\"postId\":" + postId + "}"));
+			} else if (pick < 66) {
+				call(stats, measureFrom, "GET /api/comments", get("/api/comments?postId=" + postId, token));
+			} else if (pick < 72) {
+				call(stats, measureFrom, "POST /api/comments", post("/api/comments", token,
+						"{\"description\":\"Load test comment\",\"postId\":" + postId + "}"));
+			} else if (pick < 77) {
+				call(stats, measureFrom, "POST /api/relationships", post("/api/relationships", token,
+						"{\"userId\":" + powerLawUser(random.nextDouble()) + "}"));
+			} else if (pick < 81) {
+				call(stats, measureFrom, "GET /api/relationships/friends/list",
+						get("/api/relationships/friends/list?userId=" + userId, token));
+			} else if (pick < 89) {
+				call(stats, measureFrom, "GET /api/stories/tray", get("/api/stories/tray", token));
+			} else if (pick < 91) {
+				call(stats, measureFrom, "POST /api/stories", post("/api/stories", token,
+						"{\"img\":\"/upload/story" + random.nextInt(1000) + ".jpg\"}"));
+			} else if (pick < 94) {
+				byte[] body = uploadBodies.get(random.nextInt(uploadBodies.size()));
+				call(stats, measureFrom, "POST /api/posts/upload", HttpRequest.newBuilder(uri("/api/posts/upload?filename=photo.jpg"))
+						.header("Authorization", "Bearer " + token)
+						.header("Content-Type", "image/jpeg")
+						.POST(HttpRequest.BodyPublishers.ofByteArray(body)));
+			} else if (pick < 98) {
+				call(stats, measureFrom, "GET /api/users/suggestions", get("/api/users/suggestions", token));
+			} else if (pick < 99) {
+				token = login(1 + random.nextInt(users), stats, measureFrom);
+			} else {
+				long n = registrations.incrementAndGet();
+				call(stats, measureFrom, "POST /api/auth/register", post("/api/auth/register", null,
+						"{\"username\":\"new" + n + "\",\"email\":\"new" + n + "@example.com\",\"password\":\"" + PASSWORD
+								+ "\",\"name\":\"New " + n + "\"}"));
+			}
+		}
+		return stats;
+	}
+
+	private String login(long userId, Map<String, LatencyStats> stats, long measureFrom) {
+		HttpResponse<String> response = call(stats, measureFrom, "POST /api/auth/login", post("/api/auth/login", null,
+				"{\"username\":\"user" + userId + "\",\"password\":\"" + PASSWORD + "\"}"));
+		if (response == null || response.statusCode() != 200) {
+			throw new IllegalStateException("Login failed for user" + userId);
+		}
+		return response.body();
+	}
+
+	private HttpResponse<String> call(Map<String, LatencyStats> stats, long measureFrom, String endpoint,
+									  HttpRequest.Builder request) {
+		long start = System.nanoTime();
+		HttpResponse<String> response = null;
+		int status;
+		try {
+			response = http.send(request.timeout(Duration.ofSeconds(30)).build(),
+					HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+			status = response.statusCode();
+		} catch (IOException e) {
+			status = -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			status = -1;
+		}
+		if (start >= measureFrom) {
+			stats.computeIfAbsent(endpoint, e -> new LatencyStats()).record(System.nanoTime() - start, status);
+		}
+		return response;
+	}
+
+	private HttpRequest.Builder get(String path, String token) {
+		return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token).GET();
+	}
+
+	private HttpRequest.Builder post(String path, String token, String json) {
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json));
+		return token != null ? request.header("Authorization", "Bearer " + token) : request;
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	// Low ids are followed far more often than high ones (id = n * u^3)
+	private long powerLawUser(double u) {
+		return 1 + (long) (users * u * u * u);
+	}
+
+	// A few distinct JPEGs; repeats exercise the content-addressed dedup path
+	private static List<byte[]> uploadBodies() {
+		List<byte[]> bodies = new ArrayList<>(UPLOAD_VARIANTS);
+		SplittableRandom random = new SplittableRandom(7);
+		for (int i = 0; i < UPLOAD_VARIANTS; i++) {
+			BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+			for (int y = 0; y < image.getHeight(); y += 16) {
+				for (int x = 0; x < image.getWidth(); x += 16) {
+					int rgb = random.nextInt(0x1000000);
+					for (int dy = 0; dy < 16; dy++) {
+						for (int dx = 0; dx < 16; dx++) {
+							image.setRGB(x + dx, y + dy, rgb);
+						}
+					}
+				}
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				ImageIO.write(image, "jpg", out);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			bodies.add(out.toByteArray());
+		}
+		return bodies;
+	}
+
+	private String report(Map<String, LatencyStats> byEndpoint, Duration duration, int concurrency, long seedMillis) {
+		double seconds = duration.toMillis() / 1000.0;
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("Load test: %d users, %d seeded posts, %d follows, %d clients, %.0f s measured (seeded in %d ms)%n",
+				users, posts, followGraph.edgeCount(), concurrency, seconds, seedMillis));
+		out.append(String.format("%-38s %9s %9s %7s %7s %9s %9s %9s %9s%n",
+				"endpoint", "requests", "req/s", "4xx", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+		long total = 0;
+		for (Map.Entry<String, LatencyStats> entry : byEndpoint.entrySet()) {
+			LatencyStats stats = entry.getValue();
+			double[] p = stats.percentilesMillis(0.5, 0.99, 0.999, 1.0);
+			out.append(String.format("%-38s %9d %9.1f %7d %7d %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), stats.count(),
+					stats.count() / seconds, stats.rejected(), stats.errors(), p[0], p[1], p[2], p[3]));
+			total += stats.count();
+		}
+		out.append(String.format("total: %d requests, %.1f req/s; S3 stub holds %d objects (%d KB)%n",
+				total, total / seconds, s3.objectCount(), s3.storedBytes() / 1024));
+		return out.toString();
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.echobackend.load;
+
+import java.util.Arrays;
+
+// Latencies of one endpoint as recorded by one client thread; merged per endpoint for the report.
+// Server errors (5xx, timeouts, connection failures) are counted apart from rejections (4xx),
+// which the mixed workload produces on purpose, e.g. liking a post twice.
+class LatencyStats {
+
+	private long[] nanos = new long[256];
+	private int count;
+	private long rejected;
+	private long errors;
+
+	void record(long latencyNanos, int status) {
+		if (count == nanos.length) {
+			nanos = Arrays.copyOf(nanos, count * 2);
+		}
+		nanos[count++] = latencyNanos;
+		if (status <= 0 || status >= 500) {
+			errors++;
+		} else if (status >= 400) {
+			rejected++;
+		}
+	}
+
+	void merge(LatencyStats other) {
+		if (count + other.count > nanos.length) {
+			nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, count + other.count));
+		}
+		System.arraycopy(other.nanos, 0, nanos, count, other.count);
+		count += other.count;
+		rejected += other.rejected;
+		errors += other.errors;
+	}
+
+	int count() {
+		return count;
+	}
+
+	long errors() {
+		return errors;
+	}
+
+	long rejected() {
+		return rejected;
+	}
+
+	// Percentiles in milliseconds, nearest rank
+	double[] percentilesMillis(double... percentiles) {
+		long[] sorted = Arrays.copyOf(nanos, count);
+		Arrays.sort(sorted);
+		double[] result = new double[percentiles.length];
+		for (int i = 0; i < percentiles.length; i++) {
+			if (sorted.length > 0) {
+				int rank = (int) Math.ceil(percentiles[i] * sorted.length) - 1;
+				result[i] = sorted[Math.min(Math.max(rank, 0), sorted.length - 1)] / 1e6;
+			}
+		}
+		return result;
+	}
+}
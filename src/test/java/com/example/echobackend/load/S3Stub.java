@@ -0,0 +1,241 @@
+package com.example.echobackend.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// In-process stand-in for the S3 API calls S3Service makes, served path-style
+// (/{bucket}/{key}) on a local port so S3Config can point aws.s3.endpoint at it:
+// PutObject, CopyObject, GetObject, HeadObject, DeleteObject and the multipart
+// create / upload part / complete / abort calls. Objects live in memory; signatures are not
+// checked. Bodies the SDK sends aws-chunked (streaming signature or trailing checksum) are decoded.
+class S3Stub implements AutoCloseable {
+
+	private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+	private final Map<String, SortedMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+	S3Stub() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		executor = Executors.newFixedThreadPool(32);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	String endpoint() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	int objectCount() {
+		return objects.size();
+	}
+
+	long storedBytes() {
+		return objects.values().stream().mapToLong(bytes -> bytes.length).sum();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String path = exchange.getRequestURI().getPath();
+			Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+			String method = exchange.getRequestMethod();
+			String key = URLDecoder.decode(path.substring(1), StandardCharsets.UTF_8); // bucket/key
+
+			if (method.equals("PUT") && query.containsKey("partNumber")) {
+				SortedMap<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+				if (parts == null) {
+					error(exchange, 404, "NoSuchUpload");
+					return;
+				}
+				byte[] body = body(exchange);
+				parts.put(Integer.parseInt(query.get("partNumber")), body);
+				exchange.getResponseHeaders().set("ETag", etag(body));
+				empty(exchange, 200);
+			} else if (method.equals("PUT") && exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+				String source = URLDecoder.decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"), StandardCharsets.UTF_8);
+				byte[] bytes = objects.get(source.startsWith("/") ? source.substring(1) : source);
+				if (bytes == null) {
+					error(exchange, 404, "NoSuchKey");
+					return;
+				}
+				objects.put(key, bytes);
+				xml(exchange, "<CopyObjectResult><ETag>" + etag(bytes)
+						+ "</ETag><LastModified>2024-01-01T00:00:00.000Z</LastModified></CopyObjectResult>");
+			} else if (method.equals("PUT")) {
+				byte[] body = body(exchange);
+				objects.put(key, body);
+				exchange.getResponseHeaders().set("ETag", etag(body));
+				empty(exchange, 200);
+			} else if (method.equals("POST") && query.containsKey("uploads")) {
+				String uploadId = UUID.randomUUID().toString();
+				uploads.put(uploadId, new ConcurrentSkipListMap<>());
+				xml(exchange, "<InitiateMultipartUploadResult><Bucket>" + bucket(key) + "</Bucket><Key>" + objectKey(key)
+						+ "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+			} else if (method.equals("POST") && query.containsKey("uploadId")) {
+				body(exchange);
+				SortedMap<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+				if (parts == null) {
+					error(exchange, 404, "NoSuchUpload");
+					return;
+				}
+				ByteArrayOutputStream whole = new ByteArrayOutputStream();
+				for (byte[] part : parts.values()) {
+					whole.writeBytes(part);
+				}
+				byte[] bytes = whole.toByteArray();
+				objects.put(key, bytes);
+				xml(exchange, "<CompleteMultipartUploadResult><Location>" + endpoint() + path + "</Location><Bucket>"
+						+ bucket(key) + "</Bucket><Key>" + objectKey(key) + "</Key><ETag>" + etag(bytes)
+						+ "</ETag></CompleteMultipartUploadResult>");
+			} else if (method.equals("DELETE") && query.containsKey("uploadId")) {
+				uploads.remove(query.get("uploadId"));
+				empty(exchange, 204);
+			} else if (method.equals("DELETE")) {
+				objects.remove(key);
+				empty(exchange, 204);
+			} else if (method.equals("GET") || method.equals("HEAD")) {
+				byte[] bytes = objects.get(key);
+				if (bytes == null) {
+					error(exchange, 404, "NoSuchKey");
+					return;
+				}
+				exchange.getResponseHeaders().set("ETag", etag(bytes));
+				exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+				if (method.equals("HEAD")) {
+					exchange.getResponseHeaders().set("Content-Length", String.valueOf(bytes.length));
+					exchange.sendResponseHeaders(200, -1);
+				} else {
+					exchange.sendResponseHeaders(200, bytes.length);
+					exchange.getResponseBody().write(bytes);
+				}
+			} else {
+				error(exchange, 405, "MethodNotAllowed");
+			}
+		}
+	}
+
+	private static byte[] body(HttpExchange exchange) throws IOException {
+		String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+		String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+		boolean chunked = (contentSha != null && contentSha.startsWith("STREAMING-"))
+				|| (encoding != null && encoding.contains("aws-chunked"));
+		try (InputStream in = exchange.getRequestBody()) {
+			return chunked ? decodeAwsChunked(in) : in.readAllBytes();
+		}
+	}
+
+	// <hex size>[;chunk-signature=...]\r\n<data>\r\n ... 0[;...]\r\n[trailers]\r\n
+	static byte[] decodeAwsChunked(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		while (true) {
+			String header = readLine(in);
+			if (header == null) {
+				break;
+			}
+			int semicolon = header.indexOf(';');
+			int size = Integer.parseInt((semicolon >= 0 ? header.substring(0, semicolon) : header).trim(), 16);
+			if (size == 0) {
+				break; // trailers (checksums) follow; nothing to keep
+			}
+			out.write(in.readNBytes(size));
+			readLine(in);
+		}
+		in.readAllBytes();
+		return out.toByteArray();
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n') {
+				return line.toString();
+			}
+			if (c != '\r') {
+				line.append((char) c);
+			}
+		}
+		return line.length() > 0 ? line.toString() : null;
+	}
+
+	private static Map<String, String> query(String rawQuery) {
+		Map<String, String> params = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int eq = pair.indexOf('=');
+			String name = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+			String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+			params.put(name, value);
+		}
+		return params;
+	}
+
+	private static String bucket(String bucketAndKey) {
+		int slash = bucketAndKey.indexOf('/');
+		return slash >= 0 ? bucketAndKey.substring(0, slash) : bucketAndKey;
+	}
+
+	private static String objectKey(String bucketAndKey) {
+		int slash = bucketAndKey.indexOf('/');
+		return slash >= 0 ? bucketAndKey.substring(slash + 1) : "";
+	}
+
+	private static String etag(byte[] bytes) {
+		try {
+			return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes)) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void xml(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = (XML_HEADER + body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void empty(HttpExchange exchange, int status) throws IOException {
+		exchange.sendResponseHeaders(status, -1);
+	}
+
+	private static void error(HttpExchange exchange, int status, String code) throws IOException {
+		byte[] bytes = (XML_HEADER + "<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>")
+				.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+}
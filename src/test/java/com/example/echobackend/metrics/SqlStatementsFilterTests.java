@@ -0,0 +1,39 @@
+package com.example.echobackend.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStatementsFilterTests {
+
+	@Test
+	void recordsStatementsPerRouteAndStopsCountingAfterTheRequest() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		SqlStatementCounter counter = new SqlStatementCounter();
+		SqlStatementsFilter filter = new SqlStatementsFilter(counter, registry);
+		ReflectionTestUtils.setField(filter, "warnStatements", 50);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/7");
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+			req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/posts/{id}");
+			counter.inspect("select 1");
+			counter.inspect("select 2");
+			counter.inspect("select 3");
+		});
+		counter.inspect("select outside a request");
+
+		DistributionSummary summary = registry.get("http.server.requests.sql")
+				.tag("method", "GET")
+				.tag("uri", "/api/posts/{id}")
+				.summary();
+		assertThat(summary.count()).isEqualTo(1);
+		assertThat(summary.totalAmount()).isEqualTo(3);
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Story;
+import com.example.echobackend.repository.StoryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ActiveStoryStoreTests {
+
+	private final StoryRepository storyRepository = mock(StoryRepository.class);
+	private final ActiveStoryStore store = new ActiveStoryStore(storyRepository, Duration.ofHours(24), 10);
+
+	@Test
+	void mergesAuthorsNewestFirst() {
+		Story older = story(1L, 10L, 60_000);
+		Story newer = story(2L, 20L, 30_000);
+		when(storyRepository.findActiveByUserIdIn(anyCollection(), any())).thenReturn(List.of(newer, older));
+
+		assertThat(ids(store.newest(List.of(10L, 20L), null, 10))).containsExactly(2L, 1L);
+		assertThat(store.authorCount()).isEqualTo(2);
+	}
+
+	// A story added while the author's ring was loading must not be lost when the ring is kept
+	@Test
+	void storyAddedDuringLoadIsLoadedAgain() {
+		Story existing = story(1L, 10L, 60_000);
+		Story added = story(2L, 10L, 30_000);
+		when(storyRepository.findActiveByUserIdIn(anyCollection(), any()))
+				.thenAnswer(invocation -> {
+					store.add(added);
+					return List.of(existing);
+				})
+				.thenReturn(List.of(added, existing));
+
+		assertThat(ids(store.newest(List.of(10L), null, 10))).containsExactly(1L);
+		assertThat(ids(store.newest(List.of(10L), null, 10))).containsExactly(2L, 1L);
+		store.remove(10L, 1L);
+		assertThat(ids(store.newest(List.of(10L), null, 10))).containsExactly(2L);
+	}
+
+	private static Story story(Long id, Long authorId, long ageMillis) {
+		return new Story(id, null, new Timestamp(System.currentTimeMillis() - ageMillis), authorId);
+	}
+
+	private static List<Long> ids(List<Story> stories) {
+		return stories.stream().map(Story::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.dto.ImportPostRequest;
+import com.example.echobackend.dto.ImportRelationshipRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class BulkImportServiceTests {
+
+	@Autowired
+	private BulkImportService bulkImportService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seedUsers() {
+		jdbcTemplate.update("DELETE FROM post_stats");
+		jdbcTemplate.update("DELETE FROM posts");
+		jdbcTemplate.update("DELETE FROM user_stats");
+		jdbcTemplate.update("DELETE FROM relationships");
+		jdbcTemplate.update("DELETE FROM users");
+		for (long id = 1; id <= 3; id++) {
+			jdbcTemplate.update("INSERT INTO users (id, username, email, password, name) VALUES (?, ?, ?, ?, ?)",
+					id, "user" + id, "user" + id + "@example.com", "x", "User " + id);
+		}
+	}
+
+	@Test
+	void importsPostsWithCountersAndTimestamps() {
+		LocalDateTime createdAt = LocalDateTime.of(2020, 1, 2, 3, 4, 5);
+		List<ImportPostRequest> rows = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			rows.add(new ImportPostRequest(1L + i % 3, "post " + i, null, createdAt));
+		}
+
+		assertThat(bulkImportService.importPosts(rows)).isEqualTo(120);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM posts", Long.class)).isEqualTo(120);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post_stats", Long.class)).isEqualTo(120);
+		assertThat(jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM posts", LocalDateTime.class)).isEqualTo(createdAt);
+	}
+
+	@Test
+	void rejectsPostsForUnknownUsers() {
+		assertThatThrownBy(() -> bulkImportService.importPosts(List.of(new ImportPostRequest(99L, "x", null, null))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Long.class)).isZero();
+	}
+
+	@Test
+	void skipsExistingAndDuplicateRelationshipsAndUpdatesCounters() {
+		bulkImportService.importRelationships(List.of(new ImportRelationshipRequest(1L, 2L)));
+
+		int added = bulkImportService.importRelationships(List.of(
+				new ImportRelationshipRequest(1L, 2L),
+				new ImportRelationshipRequest(1L, 3L),
+				new ImportRelationshipRequest(1L, 3L),
+				new ImportRelationshipRequest(2L, 3L)));
+
+		assertThat(added).isEqualTo(2);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM relationships", Long.class)).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForObject("SELECT following_count FROM user_stats WHERE user_id = 1", Long.class))
+				.isEqualTo(2);
+		assertThat(jdbcTemplate.queryForObject("SELECT follower_count FROM user_stats WHERE user_id = 3", Long.class))
+				.isEqualTo(2);
+	}
+}
@@ -0,0 +1,119 @@
+package com.example.echobackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheLoadGuardTests {
+
+	private final CacheLoadGuard<Long> guard = new CacheLoadGuard<>();
+	private final Map<Long, String> cache = new ConcurrentHashMap<>();
+
+	@Test
+	void writeDuringLoadDiscardsTheLoad() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch written = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> load = executor.submit(() -> guard.load(1L, () -> {
+				loading.countDown();
+				await(written);
+				return "stale";
+			}, value -> cache.put(1L, value)));
+
+			loading.await();
+			guard.write(1L, () -> cache.computeIfPresent(1L, (key, value) -> value + "+write"));
+			written.countDown();
+
+			assertThat(load.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+			assertThat(cache).doesNotContainKey(1L);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		guard.load(1L, () -> "fresh", value -> cache.put(1L, value));
+		guard.write(1L, () -> cache.computeIfPresent(1L, (key, value) -> value + "+write"));
+		assertThat(cache).containsEntry(1L, "fresh+write");
+	}
+
+	@Test
+	void writeAllFencesEveryLoadInFlight() {
+		guard.loadAll(List.of(1L, 2L), keys -> {
+			guard.writeAll(() -> { });
+			return Map.of(1L, "a", 2L, "b");
+		}, cache::put);
+
+		assertThat(cache).isEmpty();
+	}
+
+	@Test
+	void failedLoadDoesNotFenceLaterLoads() {
+		assertThatThrownBy(() -> guard.<String>load(1L, () -> {
+			throw new IllegalStateException("down");
+		}, value -> cache.put(1L, value))).isInstanceOf(IllegalStateException.class);
+
+		guard.load(1L, () -> "loaded", value -> cache.put(1L, value));
+		assertThat(cache).containsEntry(1L, "loaded");
+	}
+
+	// Readers keep missing and loading while a writer commits increments. Once a write has been
+	// applied, no load may install a value older than it.
+	@Test
+	void concurrentLoadsNeverInstallAValueOlderThanAnAppliedWrite() throws Exception {
+		Map<Long, Integer> database = new ConcurrentHashMap<>(Map.of(1L, 0));
+		AtomicInteger staleReads = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		try {
+			for (int thread = 0; thread < 3; thread++) {
+				executor.submit(() -> {
+					await(start);
+					while (writing.get()) {
+						cache.remove(1L);
+						guard.load(1L, () -> database.get(1L), value -> cache.put(1L, value + ""));
+					}
+				});
+			}
+			Future<?> writer = executor.submit(() -> {
+				await(start);
+				for (int i = 0; i < 20_000; i++) {
+					// the database commits first, then the cache is updated, like an afterCommit hook
+					int committed = database.merge(1L, 1, Integer::sum);
+					guard.write(1L, () -> cache.computeIfPresent(1L, (key, value) -> committed + ""));
+					String cached = cache.get(1L);
+					if (cached != null && Integer.parseInt(cached) < committed) {
+						staleReads.incrementAndGet();
+					}
+				}
+				writing.set(false);
+			});
+			start.countDown();
+			writer.get(60, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(staleReads).hasValue(0);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
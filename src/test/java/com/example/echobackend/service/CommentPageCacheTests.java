@@ -0,0 +1,77 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Comment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentPageCacheTests {
+
+	private final CommentPageCache cache = new CommentPageCache(new SimpleMeterRegistry(), 100, 3, Duration.ofMinutes(10));
+
+	@Test
+	void servesCachedPagesAndAppliesUpdatesInPlace() {
+		List<Integer> loads = new ArrayList<>();
+		cache.firstPage(1L, 2, () -> {
+			loads.add(1);
+			return entry(true, 2L, 1L);
+		});
+
+		cache.addComment(comment(3L));
+		cache.adjustReplyCount(1L, 2L, 2);
+		cache.removeComment(1L, 1L);
+
+		List<CommentPageCache.CachedComment> page = cache.firstPage(1L, 2, () -> {
+			throw new AssertionError("should be cached");
+		});
+		assertThat(ids(page)).containsExactly(3L, 2L);
+		assertThat(page.get(1).replyCount()).isEqualTo(2);
+		assertThat(loads).hasSize(1);
+	}
+
+	// Only depth comments are kept; a page the trimmed entry can't fill is loaded again
+	@Test
+	void reloadsWhenTheTrimmedEntryCannotAnswerTheLimit() {
+		cache.firstPage(1L, 1, () -> entry(true, 3L, 2L, 1L));
+		cache.addComment(comment(4L));
+
+		assertThat(ids(cache.firstPage(1L, 2, () -> {
+			throw new AssertionError("should be cached");
+		}))).containsExactly(4L, 3L, 2L);
+		assertThat(ids(cache.firstPage(1L, 3, () -> entry(true, 4L, 3L, 2L)))).containsExactly(4L, 3L, 2L);
+	}
+
+	// A comment added while the page was loading: the load answers its read but is not kept
+	@Test
+	void commentAddedDuringLoadIsLoadedAgain() {
+		assertThat(ids(cache.firstPage(1L, 2, () -> {
+			cache.addComment(comment(2L));
+			return entry(true, 1L);
+		}))).containsExactly(1L);
+
+		assertThat(ids(cache.firstPage(1L, 2, () -> entry(true, 2L, 1L)))).containsExactly(2L, 1L);
+	}
+
+	private static CommentPageCache.Entry entry(boolean complete, Long... ids) {
+		List<CommentPageCache.CachedComment> comments = new ArrayList<>();
+		for (Long id : ids) {
+			comments.add(new CommentPageCache.CachedComment(comment(id), 0));
+		}
+		return new CommentPageCache.Entry(comments, complete);
+	}
+
+	static Comment comment(Long id) {
+		return new Comment(id, "comment " + id, new Timestamp(id * 1000), 10L, 1L, null);
+	}
+
+	private static List<Long> ids(List<CommentPageCache.CachedComment> page) {
+		return page.stream().map(cached -> cached.comment().getId()).collect(Collectors.toList());
+	}
+}
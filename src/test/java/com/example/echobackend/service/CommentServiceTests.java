@@ -0,0 +1,70 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Comment;
+import com.example.echobackend.repository.CommentRepository;
+import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommentServiceTests {
+
+	private final CommentRepository commentRepository = mock(CommentRepository.class);
+	private final StatsService statsService = mock(StatsService.class);
+	private final CommentPageCache commentPageCache = mock(CommentPageCache.class);
+	private CommentService commentService;
+
+	@BeforeEach
+	void setUp() {
+		CurrentUserResolver currentUserResolver = mock(CurrentUserResolver.class);
+		when(currentUserResolver.getCurrentUserId()).thenReturn(10L);
+		commentService = new CommentService(commentRepository, mock(UserRepository.class), currentUserResolver,
+				statsService, commentPageCache, mock(MediaUrlResolver.class));
+	}
+
+	// Deleting a top-level comment takes its replies with it, and the counter drops by all of them
+	@Test
+	void deletingATopLevelCommentDeletesItsReplies() {
+		when(commentRepository.findById(5L)).thenReturn(Optional.of(comment(5L, 10L, null)));
+		when(commentRepository.deleteRepliesOf(5L)).thenReturn(2);
+
+		commentService.deleteComment(5L);
+
+		verify(commentRepository).deleteByIdAndUserId(5L, 10L);
+		verify(statsService).onComment(1L, -3);
+		verify(commentPageCache).removeComment(1L, 5L);
+	}
+
+	@Test
+	void deletingAReplyOnlyAdjustsItsThread() {
+		when(commentRepository.findById(6L)).thenReturn(Optional.of(comment(6L, 10L, 5L)));
+
+		commentService.deleteComment(6L);
+
+		verify(commentRepository, never()).deleteRepliesOf(anyLong());
+		verify(statsService).onComment(1L, -1);
+		verify(commentPageCache).adjustReplyCount(1L, 5L, -1);
+	}
+
+	@Test
+	void onlyTheAuthorCanDelete() {
+		when(commentRepository.findById(5L)).thenReturn(Optional.of(comment(5L, 99L, null)));
+
+		assertThatThrownBy(() -> commentService.deleteComment(5L)).isInstanceOf(RuntimeException.class);
+		verify(commentRepository, never()).deleteByIdAndUserId(anyLong(), anyLong());
+	}
+
+	private static Comment comment(Long id, Long userId, Long parentId) {
+		return new Comment(id, "comment", new Timestamp(0), userId, 1L, parentId);
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.RelationshipRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FollowGraphTests {
+
+	@Test
+	void rebuildAndIncrementalUpdates() {
+		RelationshipRepository repository = mock(RelationshipRepository.class);
+		when(repository.findEdgesAfter(anyLong(), anyLong(), any())).thenReturn(List.of(
+				new Object[]{1L, 2L}, new Object[]{1L, 3L}, new Object[]{2L, 1L}, new Object[]{3L, 2L}));
+
+		FollowGraph graph = new FollowGraph(repository);
+		graph.rebuild();
+
+		assertThat(graph.isReady()).isTrue();
+		assertThat(graph.isFollowing(1L, 3L)).isTrue();
+		assertThat(graph.isFollowing(3L, 1L)).isFalse();
+		assertThat(graph.getFollowers(2L)).containsExactly(1L, 3L);
+		assertThat(graph.edgeCount()).isEqualTo(4);
+
+		graph.addEdge(3L, 1L);
+		graph.removeEdge(1L, 2L);
+
+		assertThat(graph.getFollowers(1L)).containsExactly(2L, 3L);
+		assertThat(graph.getFollowingCount(1L)).isEqualTo(1);
+		assertThat(FollowGraph.intersect(graph.getFollowing(1L), graph.getFollowers(1L))).containsExactly(3L);
+	}
+
+	@Test
+	void removingAUserDropsTheirEdgesFromBothSides() {
+		RelationshipRepository repository = mock(RelationshipRepository.class);
+		when(repository.findEdgesAfter(anyLong(), anyLong(), any())).thenReturn(List.of(
+				new Object[]{1L, 2L}, new Object[]{1L, 3L}, new Object[]{2L, 1L}, new Object[]{3L, 2L}));
+		FollowGraph graph = new FollowGraph(repository);
+		graph.rebuild();
+
+		graph.removeUser(1L);
+
+		assertThat(graph.getFollowing(1L)).isEmpty();
+		assertThat(graph.getFollowers(1L)).isEmpty();
+		assertThat(graph.getFollowing(2L)).isEmpty();
+		assertThat(graph.getFollowers(2L)).containsExactly(3L);
+		assertThat(graph.getFollowerCount(3L)).isZero();
+		assertThat(graph.edgeCount()).isEqualTo(1);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Post;
+import com.example.echobackend.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HomeTimelineStoreTests {
+
+	private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+	private final HomeTimelineStore store = new HomeTimelineStore(new SimpleMeterRegistry(), 3, 100, Duration.ofHours(1));
+
+	// Ids come from pooled blocks and imports bring their own timestamps, so a lower id can be newer
+	@Test
+	void ordersByCreatedAtThenIdRatherThanById() {
+		store.newest(1L, null, 10, () -> List.of(post(5L, NOON.plusMinutes(1)), post(9L, NOON)));
+		store.push(1L, post(7L, NOON));
+		store.push(1L, post(2L, NOON.plusMinutes(2)));
+
+		assertThat(store.newest(1L, null, 10, List::of)).containsExactly(2L, 5L, 9L);
+	}
+
+	@Test
+	void pagesFromTheCursorsCreatedAtAndId() {
+		List<Post> posts = List.of(post(5L, NOON.plusMinutes(1)), post(9L, NOON), post(7L, NOON));
+
+		assertThat(store.newest(1L, PageCursor.of(NOON.plusMinutes(1), 5L), 10, () -> posts)).containsExactly(9L, 7L);
+		assertThat(store.newest(1L, PageCursor.of(NOON, 9L), 10, List::of)).containsExactly(7L);
+	}
+
+	@Test
+	void fullTimelineDropsItsOldestPostAndIgnoresOlderOnes() {
+		store.newest(1L, null, 10, () -> List.of(post(3L, NOON.plusMinutes(3)), post(2L, NOON.plusMinutes(2)),
+				post(1L, NOON.plusMinutes(1))));
+
+		store.push(1L, post(4L, NOON.plusMinutes(4)));
+		store.push(1L, post(9L, NOON));
+		store.push(1L, post(4L, NOON.plusMinutes(4)));
+
+		assertThat(store.newest(1L, null, 10, List::of)).containsExactly(4L, 3L, 2L);
+	}
+
+	@Test
+	void removesPostsAndAuthors() {
+		store.newest(1L, null, 10, () -> List.of(post(3L, NOON.plusMinutes(3), 200L), post(2L, NOON.plusMinutes(2)),
+				post(1L, NOON.plusMinutes(1), 200L)));
+
+		store.remove(1L, 2L);
+		assertThat(store.newest(1L, null, 10, List::of)).containsExactly(3L, 1L);
+		store.removeAuthor(1L, 200L);
+		assertThat(store.newest(1L, null, 10, List::of)).isEmpty();
+	}
+
+	// Only timelines that are already materialized are written to
+	@Test
+	void pushToUnreadTimelineIsLeftToTheNextLoad() {
+		store.push(1L, post(1L, NOON));
+
+		assertThat(store.newest(1L, null, 10, List::of)).isEmpty();
+	}
+
+	@Test
+	void timelineWrittenDuringItsLoadIsLoadedAgain() {
+		List<Long> loads = new ArrayList<>();
+		assertThat(store.newest(1L, null, 10, () -> {
+			loads.add(1L);
+			// a post fanned out after this load read the database
+			store.push(1L, post(6L, NOON.plusMinutes(1)));
+			return List.of(post(5L, NOON));
+		})).containsExactly(5L);
+
+		assertThat(store.newest(1L, null, 10, () -> {
+			loads.add(2L);
+			return List.of(post(6L, NOON.plusMinutes(1)), post(5L, NOON));
+		})).containsExactly(6L, 5L);
+		assertThat(loads).containsExactly(1L, 2L);
+	}
+
+	static Post post(Long id, LocalDateTime createdAt) {
+		return post(id, createdAt, 100L);
+	}
+
+	static Post post(Long id, LocalDateTime createdAt, Long authorId) {
+		User author = new User();
+		author.setId(authorId);
+		Post post = new Post();
+		post.setId(id);
+		post.setCreatedAt(createdAt);
+		post.setUser(author);
+		return post;
+	}
+}
@@ -0,0 +1,113 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.MediaObject;
+import com.example.echobackend.repository.MediaObjectRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageDerivativeServiceTests {
+
+	@TempDir
+	Path uploadDir;
+
+	@Test
+	void storesOnlyVariantsSmallerThanTheOriginal() throws Exception {
+		LocalFileStorage storage = new LocalFileStorage();
+		ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+		MediaObjectRepository repository = mock(MediaObjectRepository.class);
+		MediaUrlResolver resolver = mock(MediaUrlResolver.class);
+		ImageDerivativeService service = new ImageDerivativeService(repository, storage, mock(S3Service.class), resolver,
+				mock(PlatformTransactionManager.class), 1, 1, 50_000_000);
+
+		ImageIO.write(new BufferedImage(1600, 800, BufferedImage.TYPE_INT_RGB), "jpg", uploadDir.resolve("abc.jpg").toFile());
+		MediaObject media = new MediaObject(7L, "abc", MediaObject.Storage.LOCAL, "abc.jpg", "abc.jpg", 1L, 0,
+				new Timestamp(0), 0, null);
+		when(repository.lockByLocation("abc.jpg")).thenReturn(Optional.of(media));
+
+		service.process(media);
+
+		// 1600px wide: FULL (2048) would be an upscale, so only AVATAR and FEED are made
+		verify(repository).setVariants(7L, 0b011, "jpg");
+		verify(resolver).invalidate("abc.jpg");
+		BufferedImage feed = ImageIO.read(uploadDir.resolve("abc_feed.jpg").toFile());
+		assertThat(feed.getWidth()).isEqualTo(1080);
+		assertThat(feed.getHeight()).isEqualTo(540);
+		assertThat(ImageIO.read(uploadDir.resolve("abc_avatar.jpg").toFile()).getWidth()).isEqualTo(128);
+		assertThat(uploadDir.resolve("abc_full.jpg")).doesNotExist();
+		service.stop();
+	}
+
+	@Test
+	void removesVariantsOfMediaReclaimedWhileResizing() throws Exception {
+		MediaObjectRepository repository = mock(MediaObjectRepository.class);
+		MediaUrlResolver resolver = mock(MediaUrlResolver.class);
+		ImageDerivativeService service = service(repository, resolver);
+
+		ImageIO.write(new BufferedImage(1600, 800, BufferedImage.TYPE_INT_RGB), "jpg", uploadDir.resolve("abc.jpg").toFile());
+		MediaObject media = new MediaObject(7L, "abc", MediaObject.Storage.LOCAL, "abc.jpg", "abc.jpg", 1L, 0,
+				new Timestamp(0), 0, null);
+		when(repository.lockByLocation("abc.jpg")).thenReturn(Optional.empty());
+
+		service.process(media);
+
+		verify(repository, never()).setVariants(anyLong(), anyInt(), anyString());
+		verify(resolver, never()).invalidate(anyString());
+		assertThat(uploadDir.resolve("abc_feed.jpg")).doesNotExist();
+		assertThat(uploadDir.resolve("abc_avatar.jpg")).doesNotExist();
+		service.stop();
+	}
+
+	@Test
+	void leavesAnimatedGifsAlone() throws Exception {
+		MediaObjectRepository repository = mock(MediaObjectRepository.class);
+		ImageDerivativeService service = service(repository, mock(MediaUrlResolver.class));
+
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+		try (ImageOutputStream output = ImageIO.createImageOutputStream(uploadDir.resolve("anim.gif").toFile())) {
+			writer.setOutput(output);
+			writer.prepareWriteSequence(null);
+			for (int frame = 0; frame < 2; frame++) {
+				writer.writeToSequence(new IIOImage(new BufferedImage(1600, 800, BufferedImage.TYPE_BYTE_INDEXED), null, null), null);
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+		MediaObject media = new MediaObject(8L, "anim", MediaObject.Storage.LOCAL, "anim.gif", "anim.gif", 1L, 0,
+				new Timestamp(0), 0, null);
+
+		service.process(media);
+
+		verify(repository, never()).lockByLocation(anyString());
+		assertThat(uploadDir.resolve("anim_feed.jpg")).doesNotExist();
+		service.stop();
+	}
+
+	private ImageDerivativeService service(MediaObjectRepository repository, MediaUrlResolver resolver) {
+		LocalFileStorage storage = new LocalFileStorage();
+		ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+		return new ImageDerivativeService(repository, storage, mock(S3Service.class), resolver,
+				mock(PlatformTransactionManager.class), 1, 1, 50_000_000);
+	}
+
+}
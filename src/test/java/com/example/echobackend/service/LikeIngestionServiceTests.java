@@ -0,0 +1,135 @@
+package com.example.echobackend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikeIngestionServiceTests {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final StatsService statsService = mock(StatsService.class);
+	private final LikerSetCache likerSetCache = mock(LikerSetCache.class);
+	private LikeIngestionService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new LikeIngestionService(jdbcTemplate, mock(PlatformTransactionManager.class), statsService,
+				likerSetCache, new SimpleMeterRegistry());
+		// "sync" so no background flusher runs; the tests call flush() themselves
+		ReflectionTestUtils.setField(service, "mode", "sync");
+		ReflectionTestUtils.setField(service, "stripeCount", 4);
+		ReflectionTestUtils.setField(service, "batchSize", 500);
+		ReflectionTestUtils.setField(service, "maxQueueDepth", 1000);
+		ReflectionTestUtils.setField(service, "maxAttempts", 3);
+		service.start();
+	}
+
+	// With rewriteBatchedStatements a JDBC batch reports SUCCESS_NO_INFO for every row; the flush
+	// must not depend on batch row counts, so it only uses per-post statement update counts
+	@Test
+	void flushCountsNewLikesWithoutRelyingOnBatchRowCounts() {
+		when(jdbcTemplate.batchUpdate(anyString(), any(), anyInt(), any())).thenThrow(new AssertionError("no JDBC batches"));
+		// user 2 already likes post 10; the database ignores that row
+		Set<List<Object>> stored = new HashSet<>(Set.of(List.of(2L, 10L)));
+		when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO likes"), any(Object[].class))).thenAnswer(invocation -> {
+			Object[] args = Arrays.copyOfRange(invocation.getArguments(), 1, invocation.getArguments().length);
+			int inserted = 0;
+			for (int i = 0; i < args.length; i += 2) {
+				if (stored.add(List.of(args[i], args[i + 1]))) {
+					inserted++;
+				}
+			}
+			return inserted;
+		});
+
+		service.offer(1L, 10L);
+		service.offer(2L, 10L);
+		service.offer(1L, 20L);
+		service.flush();
+
+		verify(statsService).onLike(10L, 1);
+		verify(statsService).onLike(20L, 1);
+		verify(likerSetCache).add(10L, 1L);
+		verify(likerSetCache).add(10L, 2L);
+		verify(likerSetCache).add(20L, 1L);
+	}
+
+	@Test
+	void duplicateOffersAreBufferedOnceAndCancelDropsThem() {
+		assertThat(service.offer(1L, 10L)).isTrue();
+		assertThat(service.offer(1L, 10L)).isTrue();
+		assertThat(service.offer(2L, 10L)).isTrue();
+		assertThat(service.isPending(1L, 10L)).isTrue();
+
+		assertThat(service.cancel(1L, 10L)).isTrue();
+		assertThat(service.cancel(1L, 10L)).isFalse();
+		assertThat(service.isPending(1L, 10L)).isFalse();
+
+		when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO likes"), any(Object[].class))).thenReturn(1);
+		service.flush();
+
+		verify(jdbcTemplate).update(startsWith("INSERT IGNORE INTO likes"), any(Object[].class));
+		verify(likerSetCache).add(10L, 2L);
+		verify(likerSetCache, never()).add(10L, 1L);
+	}
+
+	@Test
+	void likesTheDatabaseRejectsAreDroppedWithoutHoldingBackOthers() {
+		when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO likes"), any(Object[].class))).thenAnswer(invocation -> {
+			if (invocation.getArgument(2).equals(20L)) {
+				throw new DataIntegrityViolationException("post 20 was deleted");
+			}
+			return 1;
+		});
+
+		service.offer(1L, 10L);
+		service.offer(1L, 20L);
+		service.flush();
+
+		verify(likerSetCache).add(10L, 1L);
+		verify(likerSetCache, never()).add(20L, 1L);
+		assertThat(service.isPending(1L, 20L)).isFalse();
+	}
+
+	@Test
+	void failedWritesAreRequeuedUntilTheAttemptLimit() {
+		when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO likes"), any(Object[].class)))
+				.thenThrow(new TransientDataAccessResourceException("database unavailable"));
+
+		service.offer(1L, 10L);
+		service.offer(2L, 20L);
+		service.flush();
+		service.flush();
+		assertThat(service.isPending(1L, 10L)).isTrue();
+		assertThat(service.isPending(2L, 20L)).isTrue();
+
+		service.flush();
+		assertThat(service.isPending(1L, 10L)).isFalse();
+		assertThat(service.isPending(2L, 20L)).isFalse();
+		// per flush: the whole batch, then the first post alone before the rest are requeued untried
+		verify(jdbcTemplate, times(6)).update(startsWith("INSERT IGNORE INTO likes"), any(Object[].class));
+		verify(statsService, never()).onLike(anyLong(), anyLong());
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.LikeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LikerSetCacheTests {
+
+	private final LikeRepository likeRepository = mock(LikeRepository.class);
+	private final LikerSetCache cache = new LikerSetCache(likeRepository, new SimpleMeterRegistry(), DataSize.ofKilobytes(1));
+
+	@Test
+	void keepsLikersSortedAndIgnoresDuplicates() {
+		when(likeRepository.findUserIdsByPostId(1L)).thenReturn(List.of(2L, 8L));
+
+		cache.get(1L);
+		cache.add(1L, 5L);
+		cache.add(1L, 5L);
+		cache.remove(1L, 8L);
+
+		assertThat(cache.get(1L)).containsExactly(2L, 5L);
+	}
+
+	// The like commits (and is added to the cache) while a reader is still loading the old likers
+	@Test
+	void likeCommittedDuringLoadIsNotLost() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch liked = new CountDownLatch(1);
+		when(likeRepository.findUserIdsByPostId(1L)).thenAnswer(invocation -> {
+			loading.countDown();
+			liked.await();
+			return List.of(2L);
+		}).thenReturn(List.of(2L, 7L));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<long[]> reader = executor.submit(() -> cache.get(1L));
+			loading.await();
+			cache.add(1L, 7L);
+			liked.countDown();
+			assertThat(reader.get(5, TimeUnit.SECONDS)).containsExactly(2L);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(cache.contains(1L, 7L)).isTrue();
+	}
+}
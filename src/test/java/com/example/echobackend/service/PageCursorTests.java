@@ -0,0 +1,54 @@
+package com.example.echobackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTests {
+
+	@Test
+	void roundTripsTimeAndIdCursors() {
+		LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+
+		PageCursor timed = PageCursor.decode(PageCursor.of(createdAt, 42L).encode());
+		assertThat(timed.getCreatedAt()).isEqualTo(createdAt);
+		assertThat(timed.getId()).isEqualTo(42L);
+
+		PageCursor idOnly = PageCursor.decode(PageCursor.of(7L).encode());
+		assertThat(idOnly.getId()).isEqualTo(7L);
+		// an id-only cursor can't page a time-ordered list
+		assertThatThrownBy(idOnly::getCreatedAt).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(PageCursor.decode(null)).isNull();
+		assertThat(PageCursor.decode(" ")).isNull();
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		for (String cursor : new String[]{"not base64!", encoded("no-separator"), encoded("|abc"),
+				encoded("yesterday|5"), encoded("2024-05-01T12:00|")}) {
+			assertThatThrownBy(() -> PageCursor.decode(cursor))
+					.as(cursor)
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Invalid cursor.");
+		}
+	}
+
+	@Test
+	void clampsLimits() {
+		assertThat(PageCursor.clampLimit(null, 20)).isEqualTo(20);
+		assertThat(PageCursor.clampLimit(0, 20)).isEqualTo(20);
+		assertThat(PageCursor.clampLimit(-5, 20)).isEqualTo(20);
+		assertThat(PageCursor.clampLimit(30, 20)).isEqualTo(30);
+		assertThat(PageCursor.clampLimit(10_000, 20)).isEqualTo(PageCursor.MAX_LIMIT);
+	}
+
+	private static String encoded(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.dto.PostResponse;
+import com.example.echobackend.model.Post;
+import com.example.echobackend.repository.LikeRepository;
+import com.example.echobackend.repository.PostRepository;
+import com.example.echobackend.repository.UserRepository;
+import com.example.echobackend.security.CurrentUserResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.example.echobackend.service.HomeTimelineStoreTests.post;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostServiceTests {
+
+	private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+	private final PostRepository postRepository = mock(PostRepository.class);
+	private final RelationshipService relationshipService = mock(RelationshipService.class);
+	private final HomeTimelineStore homeTimelineStore = new HomeTimelineStore(new SimpleMeterRegistry(), 300, 100, Duration.ofHours(1));
+	private PostService postService;
+
+	// user 1 follows 20 and the celebrity 50
+	private final Post followedPost = post(1L, NOON, 20L);
+	private final Post newerFollowedPost = post(3L, NOON.plusMinutes(2), 20L);
+	private final Post celebrityPost = post(2L, NOON.plusMinutes(1), 50L);
+
+	@BeforeEach
+	void setUp() {
+		CurrentUserResolver currentUserResolver = mock(CurrentUserResolver.class);
+		when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
+		StatsService statsService = mock(StatsService.class);
+		when(statsService.getPostStats(anyCollection())).thenReturn(Map.of());
+		MediaUrlResolver mediaUrlResolver = mock(MediaUrlResolver.class);
+		when(mediaUrlResolver.resolve(anyCollection())).thenReturn(mock(MediaUrlResolver.Resolved.class));
+		postService = new PostService(postRepository, mock(UserRepository.class), currentUserResolver, relationshipService,
+				homeTimelineStore, statsService, mock(LikeRepository.class), mock(LikeIngestionService.class),
+				mock(MediaService.class), mediaUrlResolver);
+
+		when(relationshipService.getFollowedUserIds(1L)).thenReturn(List.of(20L, 50L));
+		when(postRepository.findByUser_IdInOrderByCreatedAtDesc(eq(List.of(20L, 50L, 1L)), any(Pageable.class)))
+				.thenReturn(List.of(newerFollowedPost, followedPost));
+		when(postRepository.findByUser_IdInOrderByCreatedAtDesc(eq(List.of(50L)), any(Pageable.class)))
+				.thenReturn(List.of(celebrityPost));
+		when(postRepository.findAllById(anyList())).thenAnswer(invocation -> {
+			Map<Long, Post> posts = List.of(followedPost, newerFollowedPost, celebrityPost).stream()
+					.collect(Collectors.toMap(Post::getId, Function.identity()));
+			return invocation.<Collection<Long>>getArgument(0).stream().map(posts::get).collect(Collectors.toList());
+		});
+	}
+
+	@Test
+	void mergesCelebrityPostsIntoTheMaterializedTimeline() {
+		homeTimelineStore.markCelebrity(50L);
+
+		assertThat(homeFeedIds()).containsExactly(3L, 2L, 1L);
+	}
+
+	// Without celebrities the followed ids are only needed to build the timeline
+	@Test
+	void loadsFollowedIdsOnlyToMaterialize() {
+		assertThat(homeFeedIds()).containsExactly(3L, 1L);
+		assertThat(homeFeedIds()).containsExactly(3L, 1L);
+
+		verify(relationshipService, times(1)).getFollowedUserIds(1L);
+		verify(postRepository, never()).findByUser_IdInOrderByCreatedAtDesc(eq(List.of(50L)), any(Pageable.class));
+	}
+
+	private List<Long> homeFeedIds() {
+		return postService.getPosts(null, null, 10).getItems().stream().map(PostResponse::getId).collect(Collectors.toList());
+	}
+}
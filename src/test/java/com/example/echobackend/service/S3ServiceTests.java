@@ -0,0 +1,112 @@
+package com.example.echobackend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class S3ServiceTests {
+
+	private final S3AsyncClient asyncClient = mock(S3AsyncClient.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final S3Service service = new S3Service(mock(S3Client.class), asyncClient, meterRegistry,
+			DataSize.ofKilobytes(64));
+
+	S3ServiceTests() {
+		ReflectionTestUtils.setField(service, "bucketName", "media");
+		ReflectionTestUtils.setField(service, "partSize", DataSize.ofBytes(5));
+		ReflectionTestUtils.setField(service, "maxPartsInFlight", 2);
+		ReflectionTestUtils.setField(service, "endpoint", "http://localhost:9000/");
+		when(asyncClient.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+				.thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u1").build()));
+		when(asyncClient.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+				.thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+		when(asyncClient.abortMultipartUpload(any(AbortMultipartUploadRequest.class)))
+				.thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+	}
+
+	@Test
+	void splitsLargeBodiesIntoParallelParts() {
+		when(asyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation ->
+				CompletableFuture.completedFuture(UploadPartResponse.builder()
+						.eTag("e" + invocation.getArgument(0, UploadPartRequest.class).partNumber()).build()));
+
+		service.uploadAsync(new ByteArrayInputStream(new byte[12]), "tmp/clip", "video/mp4", -1).join();
+
+		assertThat(service.objectUrl("abc.mp4")).isEqualTo("http://localhost:9000/media/abc.mp4");
+		ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+		verify(asyncClient).completeMultipartUpload(complete.capture());
+		assertThat(complete.getValue().multipartUpload().parts())
+				.extracting(CompletedPart::partNumber, CompletedPart::eTag)
+				.containsExactly(
+						tuple(1, "e1"),
+						tuple(2, "e2"),
+						tuple(3, "e3"));
+		verify(asyncClient, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		assertThat(meterRegistry.get("uploads.s3.buffered").gauge().value()).isZero();
+	}
+
+	@Test
+	void abortsWhenAPartFails() {
+		when(asyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+				.thenReturn(CompletableFuture.failedFuture(S3Exception.builder().message("slow down").build()));
+
+		assertThatThrownBy(() -> service.uploadAsync(new ByteArrayInputStream(new byte[12]), "tmp/clip", "video/mp4", -1).join())
+				.isInstanceOf(CompletionException.class)
+				.hasMessageContaining("S3 upload failed");
+		verify(asyncClient).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(asyncClient, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+		assertThat(meterRegistry.get("uploads.s3.buffered").gauge().value()).isZero();
+	}
+
+	@Test
+	void sizesTheBufferToTheDeclaredLengthButHandlesLongerBodies() {
+		when(asyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+				.thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+		when(asyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation ->
+				CompletableFuture.completedFuture(UploadPartResponse.builder()
+						.eTag("e" + invocation.getArgument(0, UploadPartRequest.class).partNumber()).build()));
+
+		service.uploadAsync(new ByteArrayInputStream(new byte[3]), "tmp/small", "image/png", 3).join();
+		// declared 2 bytes, sent 12: continues as a multipart upload of full parts
+		service.uploadAsync(new ByteArrayInputStream(new byte[12]), "tmp/lied", "image/png", 2).join();
+
+		ArgumentCaptor<PutObjectRequest> put = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(asyncClient).putObject(put.capture(), any(AsyncRequestBody.class));
+		assertThat(put.getValue().contentLength()).isEqualTo(3);
+		ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+		verify(asyncClient).completeMultipartUpload(complete.capture());
+		assertThat(complete.getValue().multipartUpload().parts()).hasSize(3);
+		assertThat(meterRegistry.get("uploads.s3.buffered").gauge().value()).isZero();
+	}
+
+}
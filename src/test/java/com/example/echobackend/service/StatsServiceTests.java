@@ -0,0 +1,99 @@
+package com.example.echobackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class StatsServiceTests {
+
+	@Autowired
+	private StatsService statsService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seedPost() {
+		jdbcTemplate.update("DELETE FROM likes");
+		jdbcTemplate.update("DELETE FROM post_stats");
+		jdbcTemplate.update("DELETE FROM posts");
+		jdbcTemplate.update("DELETE FROM user_stats");
+		jdbcTemplate.update("DELETE FROM relationships");
+		jdbcTemplate.update("DELETE FROM users");
+		jdbcTemplate.update("INSERT INTO users (id, username, email, password, name) VALUES (1, 'a', 'a@example.com', 'x', 'A')");
+		jdbcTemplate.update("INSERT INTO posts (id, description, created_at, user_id) VALUES (1, 'p', CURRENT_TIMESTAMP, 1)");
+	}
+
+	@Test
+	void readsDoNotCreateRows() {
+		jdbcTemplate.update("INSERT INTO likes (user_id, post_id) VALUES (1, 1)");
+
+		assertThat(statsService.getPostStats(1L).getLikeCount()).isEqualTo(1);
+		assertThat(statsService.getUserStats(1L).getFollowerCount()).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post_stats", Long.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_stats", Long.class)).isZero();
+	}
+
+	@Test
+	void concurrentFirstWritersDoNotCollide() throws Exception {
+		int writers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>();
+		for (int i = 0; i < writers; i++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				statsService.onLike(1L, 1);
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		executor.shutdown();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM post_stats WHERE post_id = 1", Long.class))
+				.isEqualTo(writers);
+	}
+
+	@Test
+	void backfillCreatesMissingRowsFromRealCounts() {
+		jdbcTemplate.update("INSERT INTO likes (user_id, post_id) VALUES (1, 1)");
+
+		statsService.backfill();
+		statsService.backfill();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM post_stats WHERE post_id = 1", Long.class)).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_stats WHERE user_id = 1", Long.class)).isEqualTo(1);
+	}
+
+	@Test
+	void reconcileOverwritesDriftedCounters() {
+		jdbcTemplate.update("INSERT INTO users (id, username, email, password, name) VALUES (2, 'b', 'b@example.com', 'x', 'B')");
+		jdbcTemplate.update("INSERT INTO likes (user_id, post_id) VALUES (1, 1)");
+		jdbcTemplate.update("INSERT INTO relationships (follower_user_id, followed_user_id) VALUES (2, 1)");
+		jdbcTemplate.update("INSERT INTO post_stats (post_id, like_count, comment_count) VALUES (1, 7, 3)");
+		jdbcTemplate.update("INSERT INTO user_stats (user_id, follower_count, following_count) VALUES (1, 1, 0)");
+		jdbcTemplate.update("INSERT INTO user_stats (user_id, follower_count, following_count) VALUES (2, 0, 0)");
+
+		statsService.reconcile();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM post_stats WHERE post_id = 1", Long.class)).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT comment_count FROM post_stats WHERE post_id = 1", Long.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT following_count FROM user_stats WHERE user_id = 2", Long.class)).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT follower_count FROM user_stats WHERE user_id = 1", Long.class)).isEqualTo(1);
+	}
+}
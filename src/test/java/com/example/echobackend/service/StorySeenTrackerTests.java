@@ -0,0 +1,132 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.Story;
+import com.example.echobackend.repository.StoryRepository;
+import com.example.echobackend.repository.StoryViewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class StorySeenTrackerTests {
+
+	private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+	@Autowired
+	private StoryRepository storyRepository;
+
+	@Autowired
+	private StoryViewRepository storyViewRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private StorySeenTracker tracker;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate.update("DELETE FROM story_views");
+		tracker = new StorySeenTracker(storyViewRepository, jdbcTemplate, 100);
+	}
+
+	// Story 9 was created before story 5; seeing 9 must not count as having seen 5
+	@Test
+	void comparesStoriesByCreatedAtNotId() {
+		Story older = story(9L, NOON);
+		Story newer = story(5L, NOON.plusMinutes(1));
+
+		tracker.markSeen(1L, older);
+		assertThat(tracker.stateOf(1L).hasSeen(older)).isTrue();
+		assertThat(tracker.stateOf(1L).hasSeen(newer)).isFalse();
+
+		tracker.markSeen(1L, newer);
+		tracker.markSeen(1L, older);
+		assertThat(tracker.lastSeen(1L, 2L)).isEqualTo(5L);
+	}
+
+	@Test
+	void flushedMarkersOnlyMoveForward() {
+		// another node loads the viewer before this one writes anything
+		StorySeenTracker otherNode = new StorySeenTracker(storyViewRepository, jdbcTemplate, 100);
+		otherNode.stateOf(1L);
+
+		tracker.markSeen(1L, story(5L, NOON.plusMinutes(1)));
+		tracker.flush();
+		// and then flushes an older story
+		otherNode.markSeen(1L, story(9L, NOON));
+		otherNode.flush();
+
+		StorySeenTracker reloaded = new StorySeenTracker(storyViewRepository, jdbcTemplate, 100);
+		assertThat(reloaded.lastSeen(1L, 2L)).isEqualTo(5L);
+		assertThat(reloaded.stateOf(1L).hasSeen(story(9L, NOON))).isTrue();
+	}
+
+	// The tray compares the story kept in memory since addStory with a marker built from the stored row
+	@Test
+	void cachedStoryCountsAsSeenOnceItsRowIsMarked() {
+		Story added = new Story(null, null, Timestamp.valueOf(NOON.plusNanos(514_094_412)), 2L);
+		Story saved = storyRepository.save(added);
+		try {
+			Story stored = storyRepository.findById(saved.getId()).orElseThrow();
+
+			tracker.markSeen(1L, stored);
+
+			assertThat(tracker.stateOf(1L).hasSeen(saved)).isTrue();
+			assertThat(saved.getCreatedAt()).isEqualTo(stored.getCreatedAt());
+		} finally {
+			storyRepository.deleteById(saved.getId());
+		}
+	}
+
+	@Test
+	void rejectsStoriesThatWereNeverStored() {
+		assertThatThrownBy(() -> tracker.markSeen(null, story(5L, NOON))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> tracker.markSeen(1L, story(null, NOON))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> tracker.markSeen(1L, new Story(5L, null, null, 2L))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> tracker.markSeen(1L, new Story(5L, null, Timestamp.valueOf(NOON), null)))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		tracker.flush();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM story_views", Long.class)).isZero();
+		assertThat(tracker.lastSeen(1L, 2L)).isNull();
+	}
+
+	@Test
+	void failedFlushKeepsMarkersForTheNextOne() {
+		JdbcTemplate failingOnce = mock(JdbcTemplate.class);
+		when(failingOnce.batchUpdate(anyString(), anyList()))
+				.thenThrow(new TransientDataAccessResourceException("database unavailable"))
+				.thenReturn(new int[]{1});
+		StorySeenTracker flaky = new StorySeenTracker(mock(StoryViewRepository.class), failingOnce, 100);
+
+		flaky.markSeen(1L, story(5L, NOON));
+		flaky.flush();
+		flaky.flush();
+		flaky.flush();
+
+		// the failed INSERT, then the INSERT and the UPDATE of the retry; the third flush has nothing left
+		verify(failingOnce, times(3)).batchUpdate(anyString(), anyList());
+		verify(failingOnce).batchUpdate(startsWith("UPDATE story_views"), anyList());
+	}
+
+	private static Story story(Long id, LocalDateTime createdAt) {
+		return new Story(id, null, Timestamp.valueOf(createdAt), 2L);
+	}
+}
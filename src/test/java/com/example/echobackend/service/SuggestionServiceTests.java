@@ -0,0 +1,67 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.RelationshipRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuggestionServiceTests {
+
+	@Test
+	void ranksFriendsOfFriendsByMutualConnections() {
+		RelationshipRepository repository = mock(RelationshipRepository.class);
+		when(repository.findEdgesAfter(anyLong(), anyLong(), any())).thenReturn(List.of(
+				new Object[]{1L, 2L}, new Object[]{1L, 3L},
+				new Object[]{2L, 4L}, new Object[]{2L, 5L}, new Object[]{2L, 1L},
+				new Object[]{3L, 5L}, new Object[]{3L, 2L}));
+		FollowGraph graph = new FollowGraph(repository);
+		graph.rebuild();
+
+		SuggestionService service = new SuggestionService(graph, new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+		ReflectionTestUtils.setField(service, "maxFirstHop", 500);
+		ReflectionTestUtils.setField(service, "maxSecondHop", 1000);
+		ReflectionTestUtils.setField(service, "topK", 50);
+
+		// 5 is followed by both 2 and 3, 4 only by 2; 1 itself and 2 (already followed) are skipped
+		assertThat(service.getSuggestedUserIds(1L, 10)).containsExactly(5L, 4L);
+
+		graph.addEdge(1L, 5L);
+		assertThat(service.getSuggestedUserIds(1L, 10)).containsExactly(4L);
+	}
+
+	@Test
+	void refreshesOnlyUsersWhoReadSinceTheLastRefresh() {
+		RelationshipRepository repository = mock(RelationshipRepository.class);
+		when(repository.findEdgesAfter(anyLong(), anyLong(), any())).thenReturn(List.of(
+				new Object[]{1L, 2L}, new Object[]{1L, 3L},
+				new Object[]{2L, 4L}, new Object[]{2L, 5L}, new Object[]{3L, 5L}));
+		FollowGraph graph = new FollowGraph(repository);
+		graph.rebuild();
+
+		SuggestionService service = new SuggestionService(graph, new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+		ReflectionTestUtils.setField(service, "maxFirstHop", 500);
+		ReflectionTestUtils.setField(service, "maxSecondHop", 1000);
+		ReflectionTestUtils.setField(service, "topK", 50);
+
+		assertThat(service.getSuggestedUserIds(1L, 10)).containsExactly(5L, 4L);
+		service.refresh();
+
+		// not read since the last refresh, so the next one leaves the entry alone
+		graph.addEdge(3L, 6L);
+		service.refresh();
+		assertThat(service.getSuggestedUserIds(1L, 10)).containsExactly(5L, 4L);
+
+		service.refresh();
+		assertThat(service.getSuggestedUserIds(1L, 10)).containsExactly(5L, 4L, 6L);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.model.MediaObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadServiceTests {
+
+	// SHA-256 of "hello world"
+	private static final String HELLO_HASH = "b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9";
+
+	@TempDir
+	Path uploadDir;
+
+	private final MediaService mediaService = mock(MediaService.class);
+
+	private UploadService newService(long maxBytes) {
+		LocalFileStorage storage = new LocalFileStorage();
+		ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+		when(mediaService.findExisting(any(), anyString())).thenReturn(Optional.empty());
+		return new UploadService(mock(S3Service.class), storage, mediaService, DataSize.ofBytes(maxBytes), 1, 1, new MockEnvironment(),
+				new SimpleMeterRegistry());
+	}
+
+	@Test
+	void hashesTheBodyWhileStreamingToDisk() throws Exception {
+		UploadService service = newService(100);
+		when(mediaService.commit(eq(MediaObject.Storage.LOCAL), anyString(), eq(HELLO_HASH), eq(11L), eq(".jpg")))
+				.thenReturn(HELLO_HASH + ".jpg");
+
+		byte[] body = "hello world".getBytes(StandardCharsets.US_ASCII);
+		assertThat(service.toLocalDisk(new ByteArrayInputStream(body), "../../etc/cat pic.JPG", -1, null).join())
+				.isEqualTo(HELLO_HASH + ".jpg");
+		service.stop();
+	}
+
+	@Test
+	void skipsTheBodyWhenTheDeclaredHashIsStored() throws Exception {
+		UploadService service = newService(100);
+		when(mediaService.findExisting(MediaObject.Storage.LOCAL, HELLO_HASH)).thenReturn(Optional.of(HELLO_HASH + ".png"));
+
+		assertThat(service.toLocalDisk(new ByteArrayInputStream(new byte[0]), "a.png", 11, HELLO_HASH.toUpperCase()).join())
+				.isEqualTo(HELLO_HASH + ".png");
+		service.stop();
+	}
+
+	@Test
+	void rejectsBodiesThatDoNotMatchTheDeclaredHash() throws Exception {
+		UploadService service = newService(100);
+		String other = "0".repeat(64);
+
+		assertThatThrownBy(() -> service.toLocalDisk(new ByteArrayInputStream("hello world".getBytes()), "a.png", -1, other).join())
+				.hasCauseInstanceOf(IllegalArgumentException.class);
+		verify(mediaService).discardStaged(eq(MediaObject.Storage.LOCAL), anyString());
+		service.stop();
+	}
+
+	@Test
+	void dropsOversizedUploads() throws Exception {
+		UploadService service = newService(10);
+
+		// Unknown length, so the limit is only hit while streaming; the partial file is removed
+		assertThatThrownBy(() -> service.toLocalDisk(new ByteArrayInputStream(new byte[11]), "big.bin", -1, null).join())
+				.isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(UploadTooLargeException.class);
+		assertThatThrownBy(() -> service.toLocalDisk(new ByteArrayInputStream(new byte[11]), "big.bin", 11, null))
+				.isInstanceOf(UploadTooLargeException.class);
+		try (var files = Files.list(uploadDir)) {
+			assertThat(files).isEmpty();
+		}
+		verify(mediaService, never()).commit(any(), anyString(), anyString(), anyLong(), anyString());
+		service.stop();
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.example.echobackend.service;
+
+import com.example.echobackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTests {
+
+	@Test
+	void rankedSearchOverNormalizedText() {
+		UserRepository repository = mock(UserRepository.class);
+		when(repository.findSearchRowsAfter(anyLong(), any())).thenReturn(List.of(
+				new Object[]{1L, "jose", "José Álvarez"},
+				new Object[]{2L, "ajoseph", "Joseph Ray"},
+				new Object[]{3L, "marta", "Marta Josefsson"},
+				new Object[]{4L, "bob", "Bob Stone"}));
+
+		UserSearchIndex index = new UserSearchIndex(repository);
+		index.rebuild();
+
+		assertThat(index.isReady()).isTrue();
+		assertThat(index.search("JOSÉ", 10)).containsExactly(1L, 3L, 2L);
+		assertThat(index.search("jo", 10)).containsExactly(1L, 3L, 2L);
+		assertThat(index.search("al", 10)).containsExactly(1L);
+		assertThat(index.search("jos", 1)).containsExactly(1L);
+
+		index.put(4L, "bob", "Bob Josh");
+		index.remove(1L);
+
+		assertThat(index.search("jos", 10)).containsExactly(4L, 3L, 2L);
+		assertThat(index.search("stone", 10)).isEmpty();
+	}
+
+	@Test
+	void writesDuringARebuildSurviveTheSwap() {
+		UserRepository repository = mock(UserRepository.class);
+		UserSearchIndex index = new UserSearchIndex(repository);
+		when(repository.findSearchRowsAfter(anyLong(), any())).thenAnswer(invocation -> {
+			// Committed after the rebuild read these rows
+			index.put(5L, "carol", "Carol King");
+			index.put(2L, "bobby", "Bobby Stone");
+			index.remove(1L);
+			return List.of(
+					new Object[]{1L, "alice", "Alice Stone"},
+					new Object[]{2L, "bob", "Bob Stone"});
+		});
+
+		index.rebuild();
+
+		assertThat(index.search("carol", 10)).containsExactly(5L);
+		assertThat(index.search("alice", 10)).isEmpty();
+		assertThat(index.search("bobby", 10)).containsExactly(2L);
+		assertThat(index.search("stone", 10)).containsExactly(2L);
+	}
+
+	@Test
+	void betterRankedMatchesAreNotCutByManyWeakerOnes() {
+		List<Object[]> rows = new ArrayList<>();
+		for (long id = 1; id <= 2_500; id++) {
+			rows.add(new Object[]{id, "user" + id, "Sam Stone"});
+		}
+		rows.add(new Object[]{9_000L, "samwise", "Gamgee"});
+		rows.add(new Object[]{9_001L, "sam", "Someone"});
+
+		UserSearchIndex index = new UserSearchIndex(repositoryReturning(rows));
+		index.rebuild();
+
+		assertThat(index.search("sam", 3)).containsExactly(9_001L, 9_000L, 1L);
+		assertThat(index.search("sa", 2)).containsExactly(9_001L, 9_000L);
+		assertThat(index.search("stone", 3)).containsExactly(1L, 2L, 3L);
+	}
+
+	// More than MAX_CANDIDATES prefix matches, with the best ones sorting last by key
+	@Test
+	void prefixMatchesPastTheCapAreGatheredInRankOrder() {
+		List<Object[]> rows = new ArrayList<>();
+		for (long id = 1; id <= 2_100; id++) {
+			rows.add(new Object[]{id, String.format("aa%04d", id), id <= 10 ? "Bz" : "Ba"});
+		}
+		rows.add(new Object[]{9_000L, "az", "Someone"});
+		UserSearchIndex index = new UserSearchIndex(repositoryReturning(rows));
+		index.rebuild();
+
+		// the shortest username comes first even though "az" sorts after every "aa…"
+		assertThat(index.search("a", 3)).containsExactly(9_000L, 1L, 2L);
+		// equal username lengths go to the lower id, whichever name word matched
+		assertThat(index.search("b", 3)).containsExactly(1L, 2L, 3L);
+	}
+
+	private static UserRepository repositoryReturning(List<Object[]> rows) {
+		UserRepository repository = mock(UserRepository.class);
+		when(repository.findSearchRowsAfter(anyLong(), any())).thenReturn(rows, List.of());
+		return repository;
+	}
+}